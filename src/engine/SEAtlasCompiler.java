@@ -0,0 +1,152 @@
+/*
+ * SEEngine OpenGL 2.1 Engine
+ * Copyright (C) 2017  desgroup
+
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package engine;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+
+import engine.SERLogic.*;
+
+/**
+ * Packs image files ahead of time into an atlas file that {@link engine.SETex#loadAtlas(String)} can load without decoding or packing.
+ * Runs without a window or OpenGL context, for example from a build script:
+ * <pre>java -cp engine.jar engine.SEAtlasCompiler out.seatlas 1024 1024 4 a.png b.png ...</pre>
+ * The file holds a header, a rectangle index by name (the path as given) and the raw pixels of every page, cropped to what is used.
+ * @author desgroup
+ * @version SEAlpha4a
+ */
+public class SEAtlasCompiler {
+    private SEAtlasCompiler() {}
+
+    /**
+     * The first four bytes of every atlas file ("SEAT").
+     */
+    public static final int ATLAS_MAGIC = 0x53454154;
+
+    /**
+     * The version of the atlas file format written by this compiler.
+     */
+    public static final int ATLAS_VERSION = 1;
+
+    /**
+     * Packs image files into an atlas file.
+     * @param paths The paths to the image files. Each path is also the name the texture is found by.
+     * @param out The path of the atlas file to write.
+     * @param pageWidth The width of every atlas page. Should not be larger than {@link engine.SEProgramData#texMemoryWidth}.
+     * @param pageHeight The height of every atlas page. Should not be larger than {@link engine.SEProgramData#texMemoryHeight}.
+     * @param textureComponents The amount of components every pixel is stored with (1, 3 or 4). Must match {@link engine.SEProgramData#textureComponents} at runtime.
+     * @return The amount of pages written.
+     * @throws IOException If an image is missing, cannot be decoded or is larger than a page, or the file cannot be written.
+     */
+    public static int SEcompile(Collection<String> paths, String out, int pageWidth, int pageHeight, byte textureComponents) throws IOException {
+        String[] names = new LinkedHashSet<>(paths).toArray(new String[0]);
+        byte oldComponents = SERImages.components;
+        SERImages.components = textureComponents;
+        ByteData[] images = new ByteData[names.length];
+        try {
+            for (int a = 0; a < names.length; a++) {
+                try { images[a] = SERImages.readImageBytes(names[a]); }
+                catch (Exception ex) { throw new IOException("Cannot decode " + names[a], ex); }
+                if (images[a] == null) throw new FileNotFoundException(names[a]);
+                if (images[a].width > pageWidth || images[a].height > pageHeight) throw new IOException(names[a] + " is larger than a page");
+            }
+        } finally { SERImages.components = oldComponents; }
+
+        Integer[] order = new Integer[names.length];
+        for (int a = 0; a < order.length; a++) order[a] = a;
+        Arrays.sort(order, (a, b) -> images[a].height != images[b].height ? images[b].height - images[a].height :
+                images[b].width * images[b].height - images[a].width * images[a].height);
+        ArrayList<SEIPacker> pages = new ArrayList<>();
+        int[] page = new int[names.length];
+        SEIPacker.Rect[] areas = new SEIPacker.Rect[names.length];
+        for (int a : order) {
+            for (int p = 0; p < pages.size() && areas[a] == null; p++) { areas[a] = pages.get(p).insert(images[a].width, images[a].height); page[a] = p; }
+            if (areas[a] != null) continue;
+            pages.add(new SEIPacker(pageWidth, pageHeight));
+            page[a] = pages.size() - 1;
+            areas[a] = pages.get(page[a]).insert(images[a].width, images[a].height);
+        }
+        int[] usedW = new int[pages.size()], usedH = new int[pages.size()];
+        for (int a = 0; a < names.length; a++) {
+            usedW[page[a]] = Math.max(usedW[page[a]], areas[a].x + areas[a].w);
+            usedH[page[a]] = Math.max(usedH[page[a]], areas[a].y + areas[a].h);
+        }
+
+        byte[][] nameBytes = new byte[names.length][];
+        long headerSize = 4 * 5 + pages.size() * (4 * 2 + 8);
+        for (int a = 0; a < names.length; a++) {
+            nameBytes[a] = names[a].getBytes(StandardCharsets.UTF_8);
+            headerSize += 4 + nameBytes[a].length + 4 * 5;
+        }
+        ByteBuffer header = ByteBuffer.allocate((int)headerSize);
+        header.putInt(ATLAS_MAGIC).putInt(ATLAS_VERSION).putInt(textureComponents).putInt(pages.size()).putInt(names.length);
+        long offset = headerSize;
+        for (int p = 0; p < pages.size(); p++) {
+            header.putInt(usedW[p]).putInt(usedH[p]).putLong(offset);
+            offset += (long)usedW[p] * usedH[p] * textureComponents;
+        }
+        for (int a = 0; a < names.length; a++) {
+            header.putInt(nameBytes[a].length).put(nameBytes[a]);
+            header.putInt(page[a]).putInt(areas[a].x).putInt(areas[a].y).putInt(areas[a].w).putInt(areas[a].h);
+        }
+        header.flip();
+
+        try (RandomAccessFile file = new RandomAccessFile(out, "rw"); FileChannel channel = file.getChannel()) {
+            channel.truncate(0);
+            while (header.hasRemaining()) channel.write(header);
+            for (int p = 0; p < pages.size(); p++) {
+                ByteBuffer pixels = ByteBuffer.allocateDirect(usedW[p] * usedH[p] * textureComponents);
+                for (int a = 0; a < names.length; a++) {
+                    if (page[a] != p) continue;
+                    ByteBuffer src = images[a].data.duplicate();
+                    for (int y = 0; y < areas[a].h; y++) {
+                        src.limit((y + 1) * areas[a].w * textureComponents); src.position(y * areas[a].w * textureComponents);
+                        pixels.position(((areas[a].y + y) * usedW[p] + areas[a].x) * textureComponents);
+                        pixels.put(src);
+                    }
+                }
+                pixels.clear();
+                while (pixels.hasRemaining()) channel.write(pixels);
+            }
+        }
+        return pages.size();
+    }
+
+    /**
+     * Command line entry point.
+     * @param args The atlas file to write, the page width, the page height, the amount of texture components and then every image file to pack.
+     * @throws IOException If the atlas cannot be compiled.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 5) {
+            System.err.println("Usage: SEAtlasCompiler <out> <page width> <page height> <components> <image>...");
+            System.exit(1);
+        }
+        long time = System.nanoTime();
+        int pages = SEcompile(Arrays.asList(args).subList(4, args.length), args[0], Integer.parseInt(args[1]), Integer.parseInt(args[2]), Byte.parseByte(args[3]));
+        System.out.println("Packed " + (args.length - 4) + " images into " + pages + " pages in " + (System.nanoTime() - time) / 1000000 + "ms.");
+    }
+}
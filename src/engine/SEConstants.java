@@ -450,6 +450,33 @@ public class SEConstants {
         /**
          * Fake keys are disabled, yet you're submitting anyway.
          */
-         MSG_FAKE_KEYS_DISABLED_WARNING
+         MSG_FAKE_KEYS_DISABLED_WARNING,
+        /**
+         * The object space ran out of room and was doubled.
+         * The description contains the old and new capacity and how long the move took.
+         * If you see this often, raise {@link engine.SEProgramData#maxObjects}.
+         */
+         MSG_OBJECT_SPACE_GROWN,
+        /**
+         * The object space was mostly unused for a while and was halved.
+         * The description contains the old and new capacity and how long the move took.
+         */
+         MSG_OBJECT_SPACE_SHRUNK,
+        /**
+         * Instanced objects were requested with {@link engine.SEProgramData#useInstancedObjects}, but the context lacks ARB_instanced_arrays or ARB_draw_instanced.
+         * Objects are stored and drawn expanded instead.
+         */
+         MSG_INSTANCING_UNAVAILABLE,
+        /**
+         * The texture atlas was full and another page was added.
+         * Every page costs an extra texture bind per draw pass.
+         * If you see this often, raise {@link engine.SEProgramData#texMemoryWidth} and {@link engine.SEProgramData#texMemoryHeight}.
+         */
+         MSG_TEXTURE_PAGE_ADDED,
+        /**
+         * A texture memory page was repacked to join its free space.
+         * The description contains how long it took and how much the largest free area grew.
+         */
+         MSG_TEXTURE_PAGE_REPACKED
     }
 }
@@ -31,6 +31,7 @@ import static org.lwjgl.opengl.GL20.*;
 
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static engine.SEConstants.*;
 
@@ -46,6 +47,7 @@ public class SEEngine {
     /**
      * Calls SEcollapseDrawSpace every time an object is deleted.
      * Only has an effect with SEwrappedObjects disabled.
+     * The draw space is now always kept tight on deletion, so this setting no longer changes anything.
      */
     public static boolean SEcollapseObjectDrawSpaceOnDeletion = false;
     /**
@@ -65,6 +67,14 @@ public class SEEngine {
      * Allows {@link engine.SEWrappedObj#depth(int)} to control the depth of a {@link engine.SEWrappedObj}.
      */
     public static boolean SEuseWrappedObjectDepth = false;
+    /**
+     * Draws {@link engine.SEWrappedObj} in batches, one draw call per texture page for every batch, instead of one draw call per wrapped object.
+     * The transforms of every wrapped object in a batch are uploaded together as one uniform array.
+     * Wrapped objects on different texture pages are not kept in order.
+     * Only used with the expanded object layout and while {@link engine.SEEngine#SEdoubleWrappedObjects} and {@link engine.SEEngine#SEuseWrappedObjectDepth} are disabled,
+     * otherwise every wrapped object is drawn on its own.
+     */
+    public static boolean SEbatchWrappedObjects = false;
     /**
      * Once enabled, {@link engine.SEEngine} will return from {@link engine.SEEngine#SEstart(SEControlledProgram)} as soon as the program returns.
      * Using this option to quit the window (almost) insures a safe termination of GLFW and other libraries.
@@ -103,6 +113,38 @@ public class SEEngine {
      * Allows {@link engine.SEEngine#SEsubmitFakePress(int, int)} to properly submit a key press to the application.
      */
     public static boolean SEuseFakeKeyPresses = false;
+    /**
+     * Makes {@link engine.SEObj#save()} only mark the object as changed instead of uploading it right away.
+     * All changed objects are uploaded together right before the next frame is drawn.
+     * Recommended when many objects move every frame.
+     */
+    public static boolean SEdeferObjectSaves = false;
+    /**
+     * Draws objects as indexed triangles instead of GL_QUADS.
+     * Many drivers emulate GL_QUADS by splitting every quad on the CPU each frame.
+     */
+    public static boolean SEuseTriangleIndices = true;
+    /**
+     * Time (in microseconds) the engine may spend every frame moving objects into holes left by deleted objects.
+     * Keeps the object space dense so fewer and longer draw ranges are drawn. Object order is kept.
+     * A value of 0 disables compaction.
+     */
+    public static int SEcompactionBudget = 0;
+    /**
+     * Repacks a texture memory page when a new texture does not fit anywhere, but the page has enough free pixels for it.
+     * Repacking happens before a new page is added. See {@link engine.SETex#SErepackTextures()}.
+     */
+    public static boolean SErepackFullTexturePages = true;
+    /**
+     * Amount of bytes of textures from {@link engine.SETex#loadAsync(String)} that may be uploaded every frame.
+     * At least one texture is uploaded every frame. A value of 0 or less uploads every loaded texture right away.
+     */
+    public static int SEtextureUploadBudget = 4 * 1024 * 1024;
+    /**
+     * Streams texture uploads through a ring of pixel buffer objects instead of uploading from client memory.
+     * Lets the driver copy large textures while the engine keeps going. Needs OpenGL 2.1.
+     */
+    public static boolean SEusePixelBufferUploads = true;
     
     private static boolean isRunning = false;
     
@@ -186,6 +228,11 @@ public class SEEngine {
         nMD.put(SEMessage.MSG_ADD_LAYER_WARNING, "A Layer is being added, but layers are currently disabled.");
         nMD.put(SEMessage.MSG_OFFSET_TOO_LARGE, "An offset was passed an array, but the array is more (or less) than two elements.");
         nMD.put(SEMessage.MSG_FAKE_KEYS_DISABLED_WARNING, "A fake key request was submitted, but fake static keys are disbaled, so your application might not fully be aware of the fake key press.");
+        nMD.put(SEMessage.MSG_OBJECT_SPACE_GROWN, "The object space was full and has grown.");
+        nMD.put(SEMessage.MSG_OBJECT_SPACE_SHRUNK, "The object space was mostly empty and has shrunk.");
+        nMD.put(SEMessage.MSG_INSTANCING_UNAVAILABLE, "Instanced objects are not supported by this context, so objects will be expanded instead.");
+        nMD.put(SEMessage.MSG_TEXTURE_PAGE_ADDED, "The texture atlas was full and a page was added.");
+        nMD.put(SEMessage.MSG_TEXTURE_PAGE_REPACKED, "A texture memory page was repacked.");
         return nMD;
     }
     
@@ -268,37 +315,42 @@ public class SEEngine {
         glfwTerminate();
     }
     
-    private static void drawWrappedObject(SEWrappedObj wObj) {
+    private static final int[] totalOffset = new int[2];
+
+    private static void drawWrappedObject(SEWrappedObj wObj, boolean blended) {
         if (wObj == null) return;
-        SEIShaders.matrix(wObj.matrix);
-        int[] totalOffset = new int[2];
-        for (SEOffset coffset : wObj.offsets) {
-            int[] coffsetv = coffset.getOffset();
-            totalOffset[0] += coffsetv[0]; totalOffset[1] += coffsetv[1];
+        if (wObj.rangesDirty) wObj.genDrawRanges();
+        wObj.totalOffset(totalOffset);
+        SEIShaders.transform(wObj.matrix, wObj.centerX(), wObj.centerY(), totalOffset[0], totalOffset[1]);
+        (blended ? wObj.blendedRanges : wObj.drawRanges).draw();
+    }
+
+    private static void drawWrappedObjects(boolean blended) {
+        if (SEIWrapperBatches.available()) { SEIWrapperBatches.draw(blended); return; }
+        SEIState.useProgram(SEIShaders.shaderProgram);
+        if (SEuseWrappedObjectDepth) {
+            for (int a = SEWrappedObj.depthOrder.first(); a != -1; a = SEWrappedObj.depthOrder.next(a))
+                drawWrappedObject(SEWrappedObj.knownObjects.get(a), blended);
         }
-        SEIShaders.offset(totalOffset[0], totalOffset[1]);
-        int xCen = wObj.matrixCenterX; int yCen = wObj.matrixCenterY;
-        if (wObj.useObjectForMatrixCenter) { xCen = wObj.matrixCenter.getCenterX(); yCen = wObj.matrixCenter.getCenterY(); }
-        SEIShaders.matrix_center(xCen, yCen);
-        glMultiDrawArrays(GL_QUADS, wObj.drawRangesStart, wObj.drawRangesCount);
+        else for (SEWrappedObj wObj : SEWrappedObj.knownObjects) drawWrappedObject(wObj, blended);
     }
      
     private static void render() {
+        if (SEuseTriangleIndices) SEIState.bindElementBuffer(SEObj.indexBuffer);
         if (SEuseWrappedObjects) {
-            if (SEuseWrappedObjectDepth) {
-                int head = SEWrappedObj.first[0];
-                for (int a = 0; a < SEWrappedObj.knownObjects.size(); a++) {
-                    if (head == -1) break;
-                    drawWrappedObject(SEWrappedObj.knownObjects.get(head));
-                    head = SEWrappedObj.next.get(head);
-                }
+            drawWrappedObjects(false);
+            if (SEObj.isLayered()) {
+                // Blended objects must not write depth, or their transparent pixels would hide whatever is drawn after them.
+                glDepthMask(false);
+                drawWrappedObjects(true);
+                glDepthMask(true);
             }
-            else for (SEWrappedObj wObj : SEWrappedObj.knownObjects) drawWrappedObject(wObj);
         } else {
-            glUseProgram(SEIShaders.shaderProgram);
-            glBindBuffer(GL_ARRAY_BUFFER, SEObj.mainBuffer);
+            SEIState.useProgram(SEIShaders.shaderProgram);
+            SEIState.bindArrayBuffer(SEObj.mainBuffer);
             ORIGIN_OFFSET.fix();
-            glDrawArrays(GL_QUADS, 0, 4 * SEObj.objectDrawSpace);
+            if (SEObj.isLayered()) SEObj.drawLayers();
+            else SEObj.getDrawRanges().draw();
         }
     }
     
@@ -313,7 +365,9 @@ public class SEEngine {
             log(SEMessageType.MSG_TYPE_OPT, SEMessage.MSG_DRAW_WARNING);
             hasWarnedSEdrawOnCommand = true;
         }
-        glClear(GL_COLOR_BUFFER_BIT);
+        SEObj.compact();
+        SEObj.flush();
+        glClear(SEObj.isLayered() ? GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT : GL_COLOR_BUFFER_BIT);
         render();
         glfwSwapBuffers(window);
     }
@@ -337,6 +391,18 @@ public class SEEngine {
         }
         return majorfps;
     }
+
+    /**
+     * Returns the amount of program, buffer, texture and uniform changes sent to OpenGL during the last frame.
+     * @return The amount of issued state calls.
+     */
+    public static int SEgetIssuedStateCalls() { return SEIState.lastIssued; }
+
+    /**
+     * Returns the amount of program, buffer, texture and uniform changes skipped during the last frame because nothing would have changed.
+     * @return The amount of skipped state calls.
+     */
+    public static int SEgetSkippedStateCalls() { return SEIState.lastSkipped; }
     
     private static void loop() {
         log(SEMessageType.MSG_TYPE_INFO, SEMessage.MSG_LOOP);
@@ -348,11 +414,17 @@ public class SEEngine {
                     minorfps = 0;
                 }
             }
+            SEIState.frame();
+            runQue();
+            SETex.uploadPending();
             if (SEuseLayers) { for (SELayerBundle bundle : knownLayers) bundle.layer.pre(); }
             program.update();
             if (SEuseLayers) { for (SELayerBundle bundle : knownLayers) bundle.layer.post(); }
+            SEObj.checkShrink();
             if (!SEdrawOnCommand) {
-                glClear(GL_COLOR_BUFFER_BIT);
+                SEObj.compact();
+                SEObj.flush();
+                glClear(SEObj.isLayered() ? GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT : GL_COLOR_BUFFER_BIT);
                 render();
                 glfwSwapBuffers(window);
             }
@@ -378,9 +450,11 @@ public class SEEngine {
             if ((oldProgramData.windowWidth != newProgramData.windowWidth || oldProgramData.windowHeight != newProgramData.windowHeight) && newProgramData.inheritData.ordinal() <= SEInheritMode.INHERIT_NONE.ordinal()) {
                 glfwSetWindowSize(window, newProgramData.windowWidth, newProgramData.windowHeight);
                 scWidth = newProgramData.windowWidth; scHeight = newProgramData.windowHeight;
+                SEIShaders.projection();
             }
             SERImages.components = newProgramData.textureComponents;
-            if (oldProgramData.textureComponents != newProgramData.textureComponents) {
+            SEObj.setInstanced(newProgramData.useInstancedObjects);
+            if (oldProgramData.textureComponents != newProgramData.textureComponents || oldProgramData.useInstancedObjects != newProgramData.useInstancedObjects) {
                 if (SERImages.components == 1) SEIShaders.fragComponentMode = SEFragMode.FRAG_MODE_GREYSCALE;
                 else if (SERImages.components == 4) {
                     glEnable(GL_BLEND);
@@ -391,8 +465,15 @@ public class SEEngine {
                 if (!SEIShaders.loadProgram()) { log(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_SHADERS_ERROR); return null; }
             }
             SERImages.components = (byte)Math.min(newProgramData.textureComponents, 4);
+            SEObj.growObjectSpace = newProgramData.growObjectSpace;
+            SEObj.shrinkObjectSpace = newProgramData.shrinkObjectSpace;
+            SEObj.packedVertices = newProgramData.usePackedVertices;
+            SEObj.depthVertices = newProgramData.useDepthBuffer;
             if (
                     newProgramData.useQuickClear &&
+                    oldProgramData.usePackedVertices == newProgramData.usePackedVertices &&
+                    oldProgramData.useInstancedObjects == newProgramData.useInstancedObjects &&
+                    oldProgramData.useDepthBuffer == newProgramData.useDepthBuffer &&
                     (oldProgramData.maxObjects == newProgramData.maxObjects ||
                     shouldInherit(
                             newProgramData.inheritData,
@@ -414,7 +495,7 @@ public class SEEngine {
                     shouldInherit(newProgramData.inheritData, oldProgramData.textureComponents, newProgramData.textureComponents)))
                 SETex.quickClearTextures();
             else {
-                SETex.clearTextures(newProgramData.texMemoryWidth, newProgramData.texMemoryHeight);
+                SETex.clearTextures(newProgramData.texMemoryWidth, newProgramData.texMemoryHeight, newProgramData.maxTexturePages);
             }
             glClearColor(newProgramData.bkgColor[0], newProgramData.bkgColor[1], newProgramData.bkgColor[2], newProgramData.bkgColor[3]);
             msgFuncExists = newProgramData.functions.messageFunc != null;
@@ -455,16 +536,23 @@ public class SEEngine {
         glClearColor(newColor[0], newColor[1], newColor[2], newColor[3]);
     }
     
-    private static ArrayList<SEInfoFunc> quedFuncs = new ArrayList<>();
+    private static final ConcurrentLinkedQueue<SEInfoFunc> quedFuncs = new ConcurrentLinkedQueue<>();
+    private static Thread engineThread = null;
     
     /**
      * Ques one function to be called right before the program's setup method is called or immediately if the engine has already initialized.
+     * May be called from any thread. Functions qued from other threads while the engine is running are called on the engine thread at the start of the next frame.
      * @param func The code/interface to be called once the engine has setup.
      */
     public static void SEaddQue(SEInfoFunc func) {
-        if (isRunning) func.func();
+        if (isRunning && Thread.currentThread() == engineThread) func.func();
         else quedFuncs.add(func);
     }
+
+    private static void runQue() {
+        SEInfoFunc func;
+        while ((func = quedFuncs.poll()) != null) func.func();
+    }
     
     private static boolean hasWarnedDisabledLayers = false;
     
@@ -544,6 +632,7 @@ public class SEEngine {
         glfwWindowHint(GLFW_RESIZABLE, GLFW_FALSE);
         glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MAJOR, 2);
         glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MAJOR, 1);
+        glfwWindowHint(GLFW_DEPTH_BITS, 24);
         window = glfwCreateWindow(programData.windowWidth, programData.windowHeight, programData.programName, programData.isFullScreen ? glfwGetPrimaryMonitor() : NULL, NULL);
         if (window == NULL) { log(SEMessageType.MSG_TYPE_FAIL_FATAL, SEMessage.MSG_WINDOW_ERROR); return false; }
         glfwMakeContextCurrent(window);
@@ -587,13 +676,20 @@ public class SEEngine {
         }
         else if (SERImages.components >= FOURTH_COMPONENT_AS_DISCARD) {
             SERImages.components = 4; SEIShaders.fragComponentMode = SEFragMode.FRAG_MODE_ROUND_ALPHA; }
+        SEObj.setInstanced(programData.useInstancedObjects);
         if (!SEIShaders.loadProgram()) { log(SEMessageType.MSG_TYPE_FAIL_FATAL, SEMessage.MSG_SHADERS_ERROR); return false; }
         if (!isCompatible(programData.compatibleVersions)) { SEEngine.log(SEMessageType.MSG_TYPE_FAIL_FATAL, SEMessage.MSG_INCOMPATIBLE_PROGRAM); return false; }
+        SEObj.growObjectSpace = programData.growObjectSpace;
+        SEObj.shrinkObjectSpace = programData.shrinkObjectSpace;
+        SEObj.packedVertices = programData.usePackedVertices;
+        SEObj.depthVertices = programData.useDepthBuffer;
         SEObj.init(programData.maxObjects);
-        SETex.init(programData.texMemoryWidth, programData.texMemoryHeight);
+        SETex.init(programData.texMemoryWidth, programData.texMemoryHeight, programData.maxTexturePages);
         scWidth = programData.windowWidth; scHeight = programData.windowHeight;
+        SEIShaders.projection();
         SEchangeBackgroundColor(programData.bkgColor);
-        for (SEInfoFunc qf : quedFuncs) qf.func();
+        engineThread = Thread.currentThread();
+        runQue();
         isRunning = true;
         prog.setup();
         return true;
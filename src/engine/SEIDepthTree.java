@@ -0,0 +1,191 @@
+/*
+ * SEEngine OpenGL 2.1 Engine
+ * Copyright (C) 2017  desgroup
+
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * An ordered list of node numbers kept as an implicit treap, a randomly balanced binary tree ordered by position.
+ * Nodes are small non negative numbers (the pointers of {@link engine.SEWrappedObj}), every node can be in the list once.
+ * Finding, inserting, removing and moving a node take O(log n) on average, stepping through the list in order does not allocate.
+ * @author desgroup
+ * @version SEAlpha4a
+ */
+class SEIDepthTree {
+
+    private int[] left = new int[0], right = new int[0], parent = new int[0], size = new int[0], priority = new int[0];
+    private int root = -1;
+    private int seed = 0x2545F491;
+
+    private int splitLeft, splitRight;
+
+    private void ensure(int node) {
+        if (node < size.length) return;
+        int old = size.length;
+        int length = Math.max(node + 1, old * 2);
+        left = Arrays.copyOf(left, length); right = Arrays.copyOf(right, length); parent = Arrays.copyOf(parent, length);
+        size = Arrays.copyOf(size, length); priority = Arrays.copyOf(priority, length);
+        Arrays.fill(left, old, length, -1); Arrays.fill(right, old, length, -1); Arrays.fill(parent, old, length, -1);
+    }
+
+    private int random() {
+        seed ^= seed << 13; seed ^= seed >>> 17; seed ^= seed << 5;
+        return seed;
+    }
+
+    private int size(int node) { return node == -1 ? 0 : size[node]; }
+
+    private void update(int node) {
+        size[node] = 1 + size(left[node]) + size(right[node]);
+        if (left[node] != -1) parent[left[node]] = node;
+        if (right[node] != -1) parent[right[node]] = node;
+    }
+
+    /**
+     * Splits the tree at node into its first count nodes (splitLeft) and the rest (splitRight).
+     */
+    private void split(int node, int count) {
+        if (node == -1) { splitLeft = -1; splitRight = -1; return; }
+        if (size(left[node]) < count) {
+            split(right[node], count - size(left[node]) - 1);
+            right[node] = splitLeft; update(node); splitLeft = node;
+        } else {
+            split(left[node], count);
+            left[node] = splitRight; update(node); splitRight = node;
+        }
+    }
+
+    /**
+     * Joins two trees, every node of a coming before every node of b.
+     */
+    private int merge(int a, int b) {
+        if (a == -1) return b;
+        if (b == -1) return a;
+        if (priority[a] > priority[b]) { right[a] = merge(right[a], b); update(a); return a; }
+        left[b] = merge(a, left[b]); update(b); return b;
+    }
+
+    private void setRoot(int node) {
+        root = node;
+        if (root != -1) parent[root] = -1;
+    }
+
+    /**
+     * Returns the amount of nodes in the list.
+     * @return The amount of nodes.
+     */
+    protected int size() { return size(root); }
+
+    /**
+     * Tells if node is in the list.
+     * @param node The node to look for.
+     * @return True if node is in the list.
+     */
+    protected boolean contains(int node) { return node >= 0 && node < size.length && size[node] > 0; }
+
+    /**
+     * Inserts node so it ends up at position index. The node at that position and everything after it move up by one.
+     * @param node The node to insert. Must not be in the list.
+     * @param index The position, clamped to the list.
+     */
+    protected void insert(int node, int index) {
+        ensure(node);
+        index = Math.max(0, Math.min(index, size()));
+        left[node] = -1; right[node] = -1; size[node] = 1; priority[node] = random();
+        split(root, index);
+        int after = splitRight;
+        setRoot(merge(merge(splitLeft, node), after));
+    }
+
+    /**
+     * Adds node to the end of the list.
+     * @param node The node to add. Must not be in the list.
+     */
+    protected void add(int node) { insert(node, size()); }
+
+    /**
+     * Removes node from the list. Nothing happens if it is not in the list.
+     * @param node The node to remove.
+     */
+    protected void remove(int node) {
+        int index = indexOf(node);
+        if (index == -1) return;
+        split(root, index);
+        int before = splitLeft;
+        split(splitRight, 1);
+        setRoot(merge(before, splitRight));
+        left[node] = -1; right[node] = -1; parent[node] = -1; size[node] = 0;
+    }
+
+    /**
+     * Moves node to position index, inserting it if it is not in the list yet.
+     * @param node The node to move.
+     * @param index The new position, clamped to the list.
+     */
+    protected void move(int node, int index) {
+        remove(node);
+        insert(node, index);
+    }
+
+    /**
+     * Finds the position of node.
+     * @param node The node to look for.
+     * @return The position of node, or -1 if it is not in the list.
+     */
+    protected int indexOf(int node) {
+        if (!contains(node)) return -1;
+        int index = size(left[node]);
+        for (int child = node, p = parent[node]; p != -1; child = p, p = parent[p])
+            if (right[p] == child) index += size(left[p]) + 1;
+        return index;
+    }
+
+    /**
+     * Returns the first node of the list.
+     * @return The first node, or -1 if the list is empty.
+     */
+    protected int first() {
+        int node = root;
+        if (node != -1) while (left[node] != -1) node = left[node];
+        return node;
+    }
+
+    /**
+     * Returns the node after node.
+     * @param node A node in the list.
+     * @return The next node, or -1 if node is the last one.
+     */
+    protected int next(int node) {
+        if (right[node] != -1) {
+            node = right[node];
+            while (left[node] != -1) node = left[node];
+            return node;
+        }
+        while (parent[node] != -1 && right[parent[node]] == node) node = parent[node];
+        return parent[node];
+    }
+
+    /**
+     * Removes every node.
+     */
+    protected void clear() {
+        root = -1;
+        Arrays.fill(size, 0);
+        Arrays.fill(left, -1); Arrays.fill(right, -1); Arrays.fill(parent, -1);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * SEEngine OpenGL 2.1 Engine
+ * Copyright (C) 2017  desgroup
+
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package engine;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.PointerBuffer;
+
+import static org.lwjgl.opengl.ARBDrawInstanced.*;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL14.*;
+
+/**
+ * A list of contiguous runs of objects in {@link engine.SEObj#mainBuffer} to be drawn together.
+ * Keeps the ranges ready for every draw path so drawing does not allocate.
+ * @author desgroup
+ * @version SEAlpha4a
+ */
+class SEIDrawRanges {
+
+    /**
+     * The amount of ranges in the list.
+     */
+    protected int count = 0;
+
+    /**
+     * The first object of every range.
+     */
+    protected int[] start = new int[4];
+
+    /**
+     * The amount of objects in every range.
+     */
+    protected int[] length = new int[4];
+
+    private IntBuffer vertexFirst = BufferUtils.createIntBuffer(4);
+    private IntBuffer vertexCount = BufferUtils.createIntBuffer(4);
+    private PointerBuffer indexOffset = BufferUtils.createPointerBuffer(4);
+    private IntBuffer indexCount = BufferUtils.createIntBuffer(4);
+
+    /**
+     * Removes every range.
+     */
+    protected void clear() { count = 0; }
+
+    /**
+     * Adds a range of objects to the end of the list.
+     * The range is merged with the last one if they touch.
+     * @param first The first object of the range.
+     * @param objects The amount of objects in the range.
+     */
+    protected void add(int first, int objects) {
+        if (objects <= 0) return;
+        if (count > 0 && start[count - 1] + length[count - 1] == first) { length[count - 1] += objects; return; }
+        if (count == start.length) {
+            start = Arrays.copyOf(start, count * 2);
+            length = Arrays.copyOf(length, count * 2);
+            vertexFirst = BufferUtils.createIntBuffer(count * 2);
+            vertexCount = BufferUtils.createIntBuffer(count * 2);
+            indexOffset = BufferUtils.createPointerBuffer(count * 2);
+            indexCount = BufferUtils.createIntBuffer(count * 2);
+        }
+        start[count] = first; length[count] = objects;
+        count++;
+    }
+
+    /**
+     * Draws every range with the current draw path.
+     */
+    protected void draw() {
+        if (count == 0) return;
+        if (SEObj.isInstanced()) {
+            for (int a = 0; a < count; a++) {
+                SEIShaders.instancePointer(start[a]);
+                glDrawArraysInstancedARB(GL_TRIANGLE_FAN, 0, 4, length[a]);
+            }
+        } else if (SEEngine.SEuseTriangleIndices) {
+            indexOffset.clear(); indexCount.clear();
+            for (int a = 0; a < count; a++) { indexOffset.put(a, (long)start[a] * 6 * Integer.BYTES); indexCount.put(a, length[a] * 6); }
+            indexOffset.limit(count); indexCount.limit(count);
+            glMultiDrawElements(GL_TRIANGLES, indexCount, GL_UNSIGNED_INT, indexOffset);
+        } else {
+            vertexFirst.clear(); vertexCount.clear();
+            for (int a = 0; a < count; a++) { vertexFirst.put(a, start[a] * 4); vertexCount.put(a, length[a] * 4); }
+            vertexFirst.limit(count); vertexCount.limit(count);
+            glMultiDrawArrays(GL_QUADS, vertexFirst, vertexCount);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * SEEngine OpenGL 2.1 Engine
+ * Copyright (C) 2017  desgroup
+
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package engine;
+
+import java.util.BitSet;
+
+/**
+ * Keeps track of which object slots are in use and where the lowest free one may be.
+ * Used by {@link engine.SEObj}, which owns the buffers the slots index into.
+ * @author desgroup
+ * @version SEAlpha4a
+ */
+class SEIObjectSpace {
+
+    /**
+     * The slots in use.
+     */
+    protected final BitSet used = new BitSet();
+    private int lowestFree = 0;
+
+    /**
+     * Returns the slot a new object would take.
+     * @return The lowest free slot, which may lie past the capacity of the object space.
+     */
+    protected int next() { return used.nextClearBit(lowestFree); }
+
+    /**
+     * Marks the lowest free slot as used.
+     * @param slot The slot returned by {@link engine.SEIObjectSpace#next()}.
+     */
+    protected void take(int slot) {
+        used.set(slot);
+        lowestFree = slot + 1;
+    }
+
+    /**
+     * Marks a used slot as free.
+     * @param slot The slot.
+     */
+    protected void release(int slot) {
+        used.clear(slot);
+        lowestFree = Math.min(lowestFree, slot);
+    }
+
+    /**
+     * Moves a used slot into the lowest free one.
+     * @param from The used slot.
+     * @param to The slot returned by {@link engine.SEIObjectSpace#next()}.
+     */
+    protected void move(int from, int to) {
+        take(to);
+        release(from);
+    }
+
+    /**
+     * Marks every slot as free.
+     */
+    protected void clear() {
+        used.clear();
+        lowestFree = 0;
+    }
+
+    /**
+     * Returns the capacity the object space grows to so that slot fits in it.
+     * The capacity is doubled, starting from 1 if the space is empty.
+     * @param capacity The current capacity.
+     * @param slot The slot that has to fit.
+     * @return The new capacity, larger than slot.
+     */
+    protected static int grownCapacity(int capacity, int slot) {
+        int grown = Math.max(1, capacity);
+        while (grown <= slot) grown *= 2;
+        return grown;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * SEEngine OpenGL 2.1 Engine
+ * Copyright (C) 2017  desgroup
+
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package engine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Packs rectangles into a fixed area using a list of maximal free rectangles (MaxRects, best short side fit).
+ * Used by {@link engine.SETex} to find room in the main texture.
+ * @author desgroup
+ * @version SEAlpha4a
+ */
+class SEIPacker {
+
+    /**
+     * A rectangle inside the packed area (in pixels).
+     */
+    protected static class Rect {
+        int x, y, w, h;
+        Rect(int X, int Y, int W, int H) { x = X; y = Y; w = W; h = H; }
+        boolean contains(Rect r) { return r.x >= x && r.y >= y && r.x + r.w <= x + w && r.y + r.h <= y + h; }
+        boolean intersects(Rect r) { return r.x < x + w && r.x + r.w > x && r.y < y + h && r.y + r.h > y; }
+    }
+
+    private final int width, height;
+    private final ArrayList<Rect> free = new ArrayList<>();
+    private final ArrayList<Rect> used = new ArrayList<>();
+    private int usedArea = 0;
+
+    /**
+     * Creates an empty packer.
+     * @param W The width of the packed area.
+     * @param H The height of the packed area.
+     */
+    protected SEIPacker(int W, int H) {
+        width = W; height = H;
+        free.add(new Rect(0, 0, W, H));
+    }
+
+    /**
+     * Finds room for a w by h rectangle and marks it as used.
+     * @param w The width of the rectangle.
+     * @param h The height of the rectangle.
+     * @return The placed rectangle, or null if there is no room left.
+     */
+    protected Rect insert(int w, int h) {
+        Rect best = null;
+        int bestShort = Integer.MAX_VALUE, bestLong = Integer.MAX_VALUE;
+        for (Rect f : free) {
+            if (f.w < w || f.h < h) continue;
+            int leftX = f.w - w, leftY = f.h - h;
+            int shortSide = Math.min(leftX, leftY), longSide = Math.max(leftX, leftY);
+            if (shortSide < bestShort || (shortSide == bestShort && longSide < bestLong)) {
+                best = f; bestShort = shortSide; bestLong = longSide;
+            }
+        }
+        if (best == null) return null;
+        Rect placed = new Rect(best.x, best.y, w, h);
+        reserve(placed);
+        return placed;
+    }
+
+    /**
+     * Marks a rectangle at a known position as used.
+     * The rectangle must lie inside free space.
+     * @param placed The rectangle to mark.
+     */
+    protected void reserve(Rect placed) {
+        int added = split(free, placed, null);
+        prune(free, free.size() - added);
+        used.add(placed);
+        usedArea += placed.w * placed.h;
+    }
+
+    /**
+     * Cuts placed out of every rectangle in rects it overlaps. The pieces are added to the end of rects.
+     * @param keep If not null, only the pieces overlapping keep are added.
+     * @return The amount of pieces added.
+     */
+    private static int split(ArrayList<Rect> rects, Rect placed, Rect keep) {
+        int added = 0;
+        for (int a = rects.size() - 1; a >= 0; a--) {
+            Rect f = rects.get(a);
+            if (!f.intersects(placed)) continue;
+            rects.remove(a);
+            if (placed.x > f.x) added += add(rects, new Rect(f.x, f.y, placed.x - f.x, f.h), keep);
+            if (placed.x + placed.w < f.x + f.w) added += add(rects, new Rect(placed.x + placed.w, f.y, f.x + f.w - placed.x - placed.w, f.h), keep);
+            if (placed.y > f.y) added += add(rects, new Rect(f.x, f.y, f.w, placed.y - f.y), keep);
+            if (placed.y + placed.h < f.y + f.h) added += add(rects, new Rect(f.x, placed.y + placed.h, f.w, f.y + f.h - placed.y - placed.h), keep);
+        }
+        return added;
+    }
+
+    private static int add(ArrayList<Rect> rects, Rect r, Rect keep) {
+        if (keep != null && !keep.intersects(r)) return 0;
+        rects.add(r);
+        return 1;
+    }
+
+    /**
+     * Returns a previously placed rectangle to the free space.
+     * @param r A rectangle returned by {@link engine.SEIPacker#insert(int, int)} or passed to {@link engine.SEIPacker#reserve(Rect)}.
+     */
+    protected void free(Rect r) { free(Collections.singletonList(r)); }
+
+    /**
+     * Returns previously placed rectangles to the free space at once.
+     * @param rects Rectangles returned by {@link engine.SEIPacker#insert(int, int)} or passed to {@link engine.SEIPacker#reserve(Rect)}.
+     */
+    protected void free(Collection<Rect> rects) {
+        ArrayList<Rect> freed = new ArrayList<>(rects.size());
+        for (Rect r : rects) {
+            if (!removeUsed(r)) continue;
+            usedArea -= r.w * r.h;
+            freed.add(r);
+        }
+        grow(freed);
+    }
+
+    /**
+     * Replaces a used rectangle by smaller rectangles inside it.
+     * The parts of block not covered by parts become free.
+     * @param block A rectangle returned by {@link engine.SEIPacker#insert(int, int)} or passed to {@link engine.SEIPacker#reserve(Rect)}.
+     * @param parts Rectangles inside block that do not overlap each other.
+     */
+    protected void divide(Rect block, Collection<Rect> parts) {
+        if (!removeUsed(block)) return;
+        usedArea -= block.w * block.h;
+        for (Rect p : parts) { used.add(p); usedArea += p.w * p.h; }
+        grow(Collections.singletonList(block));
+    }
+
+    private boolean removeUsed(Rect r) {
+        for (int a = used.size() - 1; a >= 0; a--) {
+            if (used.get(a) == r) { used.remove(a); return true; }
+        }
+        for (int a = used.size() - 1; a >= 0; a--) {
+            Rect u = used.get(a);
+            if (u.x == r.x && u.y == r.y && u.w == r.w && u.h == r.h) { used.remove(a); return true; }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the free rectangles gained by freeing areas that are no longer used.
+     * Every maximal free rectangle that did not exist before overlaps one of the areas, so only those are built,
+     * by cutting the used rectangles out of the whole area and dropping every piece that misses the freed area.
+     * Old free rectangles inside a new one are removed.
+     */
+    private void grow(Collection<Rect> areas) {
+        if (areas.isEmpty()) return;
+        ArrayList<Rect> gained = new ArrayList<>();
+        ArrayList<Rect> pieces = new ArrayList<>();
+        for (Rect area : areas) {
+            pieces.clear();
+            pieces.add(new Rect(0, 0, width, height));
+            for (Rect u : used) {
+                int added = split(pieces, u, area);
+                if (added > 0) prune(pieces, pieces.size() - added);
+            }
+            gained.addAll(pieces);
+        }
+        prune(gained, 0);
+        for (int a = free.size() - 1; a >= 0; a--) {
+            Rect f = free.get(a);
+            for (Rect g : gained) {
+                if (g.contains(f)) { free.remove(a); break; }
+            }
+        }
+        free.addAll(gained);
+    }
+
+    /**
+     * Removes the rectangles from index first on that lie inside another rectangle.
+     * Only pieces of a split need checking, a rectangle that was maximal before cannot lie inside a piece of another one.
+     */
+    private static void prune(ArrayList<Rect> rects, int first) {
+        for (int a = rects.size() - 1; a >= first; a--) {
+            Rect f = rects.get(a);
+            for (int b = 0; b < rects.size(); b++) {
+                if (a != b && rects.get(b).contains(f)) { rects.remove(a); break; }
+            }
+        }
+    }
+
+    /**
+     * Returns the area (in pixels) currently in use.
+     * @return The used area.
+     */
+    protected int getUsedArea() { return usedArea; }
+
+    /**
+     * Returns the area (in pixels) of the largest free rectangle.
+     * @return The largest free area.
+     */
+    protected int getLargestFreeArea() {
+        int largest = 0;
+        for (Rect f : free) largest = Math.max(largest, f.w * f.h);
+        return largest;
+    }
+
+    /**
+     * Returns the width of the packed area.
+     * @return The width of the packed area.
+     */
+    protected int getWidth() { return width; }
+
+    /**
+     * Returns the height of the packed area.
+     * @return The height of the packed area.
+     */
+    protected int getHeight() { return height; }
+}
@@ -0,0 +1,74 @@
+/*
+ * SEEngine OpenGL 2.1 Engine
+ * Copyright (C) 2017  desgroup
+
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * One {@link engine.SEIDrawRanges} list per texture page.
+ * Drawing binds every page that has ranges once and draws all of its ranges together.
+ * Draw order is only kept between objects on the same page.
+ * @author desgroup
+ * @version SEAlpha4a
+ */
+class SEIPagedRanges {
+
+    private SEIDrawRanges[] pages = { new SEIDrawRanges() };
+
+    /**
+     * Removes every range of every page.
+     */
+    protected void clear() { for (SEIDrawRanges ranges : pages) ranges.clear(); }
+
+    /**
+     * Adds a range of objects to the end of a page's list.
+     * @param page The texture page the objects use.
+     * @param first The first object of the range.
+     * @param objects The amount of objects in the range.
+     */
+    protected void add(int page, int first, int objects) {
+        if (page >= pages.length) {
+            int old = pages.length;
+            pages = Arrays.copyOf(pages, page + 1);
+            for (int a = old; a < pages.length; a++) pages[a] = new SEIDrawRanges();
+        }
+        pages[page].add(first, objects);
+    }
+
+    /**
+     * Adds every range of other to the end of the matching page's list.
+     * @param other The ranges to add.
+     */
+    protected void addAll(SEIPagedRanges other) {
+        for (int a = 0; a < other.pages.length; a++) {
+            SEIDrawRanges ranges = other.pages[a];
+            for (int b = 0; b < ranges.count; b++) add(a, ranges.start[b], ranges.length[b]);
+        }
+    }
+
+    /**
+     * Draws every page that has ranges, binding its texture once.
+     */
+    protected void draw() {
+        for (int a = 0; a < pages.length; a++) {
+            if (pages[a].count == 0) continue;
+            SETex.bindPage(a);
+            pages[a].draw();
+        }
+    }
+}
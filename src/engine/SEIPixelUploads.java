@@ -0,0 +1,89 @@
+/*
+ * SEEngine OpenGL 2.1 Engine
+ * Copyright (C) 2017  desgroup
+
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package engine;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.opengl.GL;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL21.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Streams texture uploads through a ring of pixel buffer objects.
+ * Pixels are copied into a mapped buffer and the texture is updated from that buffer,
+ * so the driver can finish the transfer while the engine keeps going.
+ * @author desgroup
+ * @version SEAlpha4a
+ */
+class SEIPixelUploads {
+    private SEIPixelUploads() {}
+
+    private static final int RING_SIZE = 3;
+
+    private static int[] buffers = null;
+    private static int next = 0;
+
+    /**
+     * Amount of bytes uploaded through pixel buffer objects.
+     */
+    protected static long streamedBytes = 0;
+
+    private static boolean available() {
+        return SEEngine.SEusePixelBufferUploads && GL.getCapabilities().OpenGL21;
+    }
+
+    /**
+     * Uploads pixels into part of a texture.
+     * Uses the next pixel buffer object of the ring when {@link engine.SEEngine#SEusePixelBufferUploads} is enabled and the context supports OpenGL 2.1,
+     * otherwise the pixels are uploaded from client memory.
+     * @param texture The OpenGL texture to update.
+     * @param x The x position (in pixels) to update.
+     * @param y The y position (in pixels) to update.
+     * @param w The width of the pixels.
+     * @param h The height of the pixels.
+     * @param pixels Tightly packed 8 bit pixels with {@link engine.SERImages#components} components, from the buffer's position on.
+     */
+    protected static void texSubImage(int texture, int x, int y, int w, int h, ByteBuffer pixels) {
+        int format = SERImages.COMPONENT_REFERENCE[SERImages.components];
+        long size = (long)w * h * SERImages.components;
+        SEIState.bindTexture(texture);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        if (size == 0 || !available()) { glTexSubImage2D(GL_TEXTURE_2D, 0, x, y, w, h, format, GL_UNSIGNED_BYTE, pixels); return; }
+        if (buffers == null) { buffers = new int[RING_SIZE]; glGenBuffers(buffers); }
+        int slot = next;
+        next = (next + 1) % RING_SIZE;
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, buffers[slot]);
+        // Orphaned at the size of this upload, so one large page upload does not make every later upload map that much memory.
+        glBufferData(GL_PIXEL_UNPACK_BUFFER, size, GL_STREAM_DRAW);
+        ByteBuffer mapped = glMapBuffer(GL_PIXEL_UNPACK_BUFFER, GL_WRITE_ONLY, size, null);
+        boolean copied = mapped != null;
+        if (copied) {
+            memCopy(memAddress(pixels), memAddress(mapped), size);
+            copied = glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
+        }
+        if (copied) {
+            nglTexSubImage2D(GL_TEXTURE_2D, 0, x, y, w, h, format, GL_UNSIGNED_BYTE, 0L);
+            streamedBytes += size;
+        }
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+        if (!copied) glTexSubImage2D(GL_TEXTURE_2D, 0, x, y, w, h, format, GL_UNSIGNED_BYTE, pixels);
+    }
+}
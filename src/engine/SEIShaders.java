@@ -17,7 +17,13 @@
  */
 package engine;
 
+import java.nio.FloatBuffer;
+
+import org.lwjgl.opengl.GL;
+
+import static org.lwjgl.opengl.ARBInstancedArrays.*;
 import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.opengl.GL20.*;
 
 import static engine.SEConstants.*;
@@ -30,6 +36,8 @@ import static engine.SEProgramData.*;
  */
 class SEIShaders {
     private SEIShaders() {}
+
+    private static final int INSTANCED_VERTEX_SHADER = 4;
     
     private static final String[] SHADER_SOURCES = {
             //Vertex Shader
@@ -37,16 +45,18 @@ class SEIShaders {
             + "\n"
             + "attribute vec2 position;\n"
             + "attribute vec2 texCoord;\n"
+            + "attribute float layer;\n"
             + "\n"
             + "varying vec2 texCoord_out;\n"
             + "\n"
-            + "uniform vec2 offset;\n"
-            + "uniform vec2 matrix_center;\n"
-            + "uniform mat2 matrix;\n"
+            + "uniform mat3 transform;\n"
+            + "uniform vec4 projection;\n"
+            + "\n"
+            + "vec2 project(vec2 point) { return point * projection.xy + projection.zw; }\n"
             + "\n"
             + "void main() {\n"
             + " texCoord_out = texCoord;\n"
-            + " gl_Position = vec4((position - matrix_center) * matrix + matrix_center + offset, 0.0, 1.0);\n"
+            + " gl_Position = vec4((transform * vec3(project(position), 1.0)).xy, -layer / 32768.0, 1.0);\n"
             + "}",
             //Frag Shader
               "#version 120\n"
@@ -81,8 +91,67 @@ class SEIShaders {
             + " vec4 texColor = texture2D(tex, texCoord_out);\n"
             + " gl_FragColor = vec4(texColor.r, texColor.r, texColor.r, texColor.a);\n"
             + "}",
+            //Vertex Shader Instanced
+              "#version 120\n"
+            + "\n"
+            + "attribute vec2 corner;\n"
+            + "attribute vec4 rect;\n"
+            + "attribute vec4 texRect;\n"
+            + "attribute float layer;\n"
+            + "\n"
+            + "varying vec2 texCoord_out;\n"
+            + "\n"
+            + "uniform mat3 transform;\n"
+            + "uniform vec4 projection;\n"
+            + "\n"
+            + "vec2 project(vec2 point) { return point * projection.xy + projection.zw; }\n"
+            + "\n"
+            + "void main() {\n"
+            + " vec2 flip = step(0.0, vec2(projection.z, -projection.w));\n"
+            + " texCoord_out = texRect.xy + abs(flip - corner) * texRect.zw;\n"
+            + " gl_Position = vec4((transform * vec3(project(rect.xy + corner * rect.zw), 1.0)).xy, -layer / 32768.0, 1.0);\n"
+            + "}",
     };
 
+    /**
+     * Vertex shader drawing many {@link engine.SEWrappedObj} at once.
+     * Every wrapper has two vectors in wrappers: the two columns of its screen space transform, then its translation.
+     * BATCH_VECTORS is replaced with the length of the array before compiling.
+     */
+    private static final String BATCH_VERTEX_SHADER =
+              "#version 120\n"
+            + "\n"
+            + "attribute vec2 position;\n"
+            + "attribute vec2 texCoord;\n"
+            + "attribute float layer;\n"
+            + "attribute float wrapper;\n"
+            + "\n"
+            + "varying vec2 texCoord_out;\n"
+            + "\n"
+            + "uniform vec4 wrappers[BATCH_VECTORS];\n"
+            + "uniform float wrapper_base;\n"
+            + "uniform vec4 projection;\n"
+            + "\n"
+            + "vec2 project(vec2 point) { return point * projection.xy + projection.zw; }\n"
+            + "\n"
+            + "void main() {\n"
+            + " int index = int(wrapper - wrapper_base + 0.5) * 2;\n"
+            + " vec4 linear = wrappers[index];\n"
+            + " vec2 shift = wrappers[index + 1].xy;\n"
+            + " texCoord_out = texCoord;\n"
+            + " gl_Position = vec4(mat2(linear.xy, linear.zw) * project(position) + shift, -layer / 32768.0, 1.0);\n"
+            + "}";
+
+    /**
+     * Upper limit for the amount of wrappers in one batch.
+     */
+    private static final int MAX_BATCH_SIZE = 256;
+
+    /**
+     * Uniform vectors kept free for the other uniforms of the batch program.
+     */
+    private static final int RESERVED_UNIFORM_VECTORS = 8;
+
     /**
      * The current fragment shader.
      * Should be a FRAG_MODE_ constant.
@@ -96,86 +165,309 @@ class SEIShaders {
     
     private static int att_position = -1;
     private static int att_texCoord = -1;
+    private static int att_corner = -1;
+    private static int att_rect = -1;
+    private static int att_texRect = -1;
+    private static int att_layer = -1;
+
+    private static int cornerBuffer = -1;
     
-    private static int uni_offset = -1;
-    private static int uni_matrix_center = -1;
-    private static int uni_matrix = -1;
+    private static int uni_transform = -1;
+    private static int uni_projection = -1;
 
     /**
-     * Loads and initializes the requested shaders.
-     * @return True if the function was successful, false otherwise.
+     * The OpenGL shader program drawing batches of wrapped objects, or -1 if it was not needed yet.
      */
-    protected static boolean loadProgram() {
-        //Load, Compile, Link...
-        shaderProgram = glCreateProgram();
+    protected static int batchProgram = -1;
+
+    /**
+     * The amount of wrappers one batch can hold.
+     * Set once {@link engine.SEIShaders#batchProgram} is loaded.
+     */
+    protected static int batchSize = 0;
+
+    private static boolean batchFailed = false;
+
+    private static int att_wrapper = -1;
+
+    private static int uni_wrappers = -1;
+    private static int uni_wrapper_base = -1;
+    private static int uni_batch_projection = -1;
+
+    /**
+     * Compiles both shaders and links them into program.
+     * On failure everything is deleted and the error is logged.
+     * @param program The OpenGL program to link.
+     * @param vertexSource The source of the vertex shader.
+     * @param fragmentSource The source of the fragment shader.
+     * @param failType The message type errors are logged with.
+     * @return True if the program was linked, false otherwise.
+     */
+    private static boolean build(int program, String vertexSource, String fragmentSource, SEMessageType failType) {
         int vShader = glCreateShader(GL_VERTEX_SHADER);
         int fShader = glCreateShader(GL_FRAGMENT_SHADER);
-        glShaderSource(vShader, SHADER_SOURCES[0]);
-        glShaderSource(fShader, SHADER_SOURCES[fragComponentMode.ordinal()]);
+        glShaderSource(vShader, vertexSource);
+        glShaderSource(fShader, fragmentSource);
         glCompileShader(vShader);
         if (glGetShaderi(vShader, GL_COMPILE_STATUS) != GL_TRUE) {
-            SEEngine.logWithDescription(SEMessageType.MSG_TYPE_FAIL_FATAL, SEMessage.MSG_SHADERS_VERTEX_COMPILE_ERROR, "Failed to compile vertex shader:\n" + glGetShaderInfoLog(vShader));
-            glDeleteProgram(shaderProgram); glDeleteShader(vShader); glDeleteShader(fShader);
+            SEEngine.logWithDescription(failType, SEMessage.MSG_SHADERS_VERTEX_COMPILE_ERROR, "Failed to compile vertex shader:\n" + glGetShaderInfoLog(vShader));
+            glDeleteProgram(program); glDeleteShader(vShader); glDeleteShader(fShader);
             return false;
         }
         glCompileShader(fShader);
         if (glGetShaderi(fShader, GL_COMPILE_STATUS) != GL_TRUE) {
-            SEEngine.logWithDescription(SEMessageType.MSG_TYPE_FAIL_FATAL, SEMessage.MSG_SHADERS_VERTEX_COMPILE_ERROR, "Failed to compile fragment shader:\n" + glGetShaderInfoLog(fShader));
-            glDeleteProgram(shaderProgram); glDeleteShader(vShader); glDeleteShader(fShader);
+            SEEngine.logWithDescription(failType, SEMessage.MSG_SHADERS_VERTEX_COMPILE_ERROR, "Failed to compile fragment shader:\n" + glGetShaderInfoLog(fShader));
+            glDeleteProgram(program); glDeleteShader(vShader); glDeleteShader(fShader);
             return false;
         }
-        glAttachShader(shaderProgram, vShader);
-        glAttachShader(shaderProgram, fShader);
-        glLinkProgram(shaderProgram);
-        if (glGetProgrami(shaderProgram, GL_LINK_STATUS) != GL_TRUE) {
-            SEEngine.logWithDescription(SEMessageType.MSG_TYPE_FAIL_FATAL, SEMessage.MSG_SHADERS_LINK_ERROR, "Failed to link shader program:\n" + glGetProgramInfoLog(shaderProgram));
-            glDeleteProgram(shaderProgram); glDeleteShader(vShader); glDeleteShader(fShader);
+        glAttachShader(program, vShader);
+        glAttachShader(program, fShader);
+        glLinkProgram(program);
+        if (glGetProgrami(program, GL_LINK_STATUS) != GL_TRUE) {
+            SEEngine.logWithDescription(failType, SEMessage.MSG_SHADERS_LINK_ERROR, "Failed to link shader program:\n" + glGetProgramInfoLog(program));
+            glDeleteProgram(program); glDeleteShader(vShader); glDeleteShader(fShader);
             return false;
         }
+        return true;
+    }
+
+    /**
+     * Loads and initializes the requested shaders.
+     * @return True if the function was successful, false otherwise.
+     */
+    protected static boolean loadProgram() {
+        //Load, Compile, Link...
+        shaderProgram = glCreateProgram();
+        if (!build(shaderProgram, SHADER_SOURCES[SEObj.isInstanced() ? INSTANCED_VERTEX_SHADER : 0], SHADER_SOURCES[fragComponentMode.ordinal() + 1], SEMessageType.MSG_TYPE_FAIL_FATAL)) return false;
+        if (batchProgram != -1) glDeleteProgram(batchProgram);
+        batchProgram = -1; batchFailed = false;
         //Use/Setup...
-        glUseProgram(shaderProgram);
+        SEIState.useProgram(shaderProgram);
         //Attributes...
         att_position = glGetAttribLocation(shaderProgram, "position");
         att_texCoord = glGetAttribLocation(shaderProgram, "texCoord");
+        att_corner = glGetAttribLocation(shaderProgram, "corner");
+        att_rect = glGetAttribLocation(shaderProgram, "rect");
+        att_texRect = glGetAttribLocation(shaderProgram, "texRect");
+        att_layer = glGetAttribLocation(shaderProgram, "layer");
         //Uniforms...
-        uni_offset = glGetUniformLocation(shaderProgram, "offset");
-        uni_matrix_center = glGetUniformLocation(shaderProgram, "matrix_center");
-        uni_matrix = glGetUniformLocation(shaderProgram, "matrix");
+        uni_transform = glGetUniformLocation(shaderProgram, "transform");
+        uni_projection = glGetUniformLocation(shaderProgram, "projection");
         //Values...
-        glUniform2f(uni_offset, 0f, 0f);
-        glUniform2f(uni_matrix_center, 0f, 0f);
-        glUniformMatrix2fv(uni_matrix, false, SERLogic.genIdentityMatrix().data);
+        projection();
+        offset(0, 0);
         return true;
     }
     
+    private static final float[] transformValues = new float[9];
+    private static final float[] screenValues = new float[6];
+    private static final SETransform IDENTITY = new SETransform();
+
     /**
-     * Sets the current matrix to data.
-     * @param data The new matrix (2x2 Data Structure) to be set as the current matrix.
+     * Turns the transform of a wrapped object into a transform of screen coordinates.
+     * The linear part of matrix is applied around the matrix center after projecting, its translation is added to the offset.
+     * @param matrix The transform of the wrapped object.
+     * @param xCenter The x position of the matrix center (in pixels).
+     * @param yCenter The y position of the matrix center (in pixels).
+     * @param xOffset The x offset (in pixels).
+     * @param yOffset The y offset (in pixels).
+     * @param out Receives the two columns of the linear part and the translation (6 values).
      */
-    protected static void matrix(SERLogic.Data data) { glUniformMatrix2fv(uni_matrix, false, data.data); }
+    protected static void screenTransform(SETransform matrix, int xCenter, int yCenter, int xOffset, int yOffset, float[] out) {
+        screenTransform(matrix, xCenter, yCenter, xOffset, yOffset, 2 / SEEngine.scWidth * SEObj.ampX, 2 / SEEngine.scHeight * SEObj.ampY, -SEObj.ampX, -SEObj.ampY, out);
+    }
 
     /**
-     * Changes the current matrix center to xMat, yMat.
-     * @param xMat The x position of the new matrix center (in pixels).
-     * @param yMat The y position of the new matrix center (in pixels).
+     * Version of {@link engine.SEIShaders#screenTransform(SETransform, int, int, int, int, float[])} with the projection given
+     * as the values of the projection uniform: a point p (in pixels) is projected to p * scale + shift.
+     * @param matrix The transform of the wrapped object.
+     * @param xCenter The x position of the matrix center (in pixels).
+     * @param yCenter The y position of the matrix center (in pixels).
+     * @param xOffset The x offset (in pixels).
+     * @param yOffset The y offset (in pixels).
+     * @param scaleX The x scale of the projection.
+     * @param scaleY The y scale of the projection.
+     * @param shiftX The x shift of the projection.
+     * @param shiftY The y shift of the projection.
+     * @param out Receives the two columns of the linear part and the translation (6 values).
      */
-    protected static void matrix_center(int xMat, int yMat) { glUniform2f(uni_matrix_center, (xMat / SEEngine.scWidth - 0.5f) * 2 * SEObj.ampX, (yMat / SEEngine.scHeight - 0.5f) * 2 * SEObj.ampY); }
+    protected static void screenTransform(SETransform matrix, int xCenter, int yCenter, int xOffset, int yOffset,
+            float scaleX, float scaleY, float shiftX, float shiftY, float[] out) {
+        float centerX = xCenter * scaleX + shiftX, centerY = yCenter * scaleY + shiftY;
+        out[0] = matrix.a; out[1] = matrix.b; out[2] = matrix.c; out[3] = matrix.d;
+        out[4] = centerX - matrix.a * centerX - matrix.c * centerY + (xOffset + matrix.tx) * scaleX;
+        out[5] = centerY - matrix.b * centerX - matrix.d * centerY + (yOffset + matrix.ty) * scaleY;
+    }
 
     /**
-     * Changes the current offset (for the shader) to xOffset, yOffset.
+     * Sets the transform uniform.
+     * @param matrix The transform of the wrapped object.
+     * @param xCenter The x position of the matrix center (in pixels).
+     * @param yCenter The y position of the matrix center (in pixels).
+     * @param xOffset The x offset (in pixels).
+     * @param yOffset The y offset (in pixels).
+     */
+    protected static void transform(SETransform matrix, int xCenter, int yCenter, int xOffset, int yOffset) {
+        screenTransform(matrix, xCenter, yCenter, xOffset, yOffset, screenValues);
+        transformValues[0] = screenValues[0]; transformValues[1] = screenValues[1]; transformValues[2] = 0;
+        transformValues[3] = screenValues[2]; transformValues[4] = screenValues[3]; transformValues[5] = 0;
+        transformValues[6] = screenValues[4]; transformValues[7] = screenValues[5]; transformValues[8] = 1;
+        SEIState.uniformMatrix3(SEIState.UNIFORM_TRANSFORM, uni_transform, transformValues);
+    }
+
+    /**
+     * Changes the transform uniform to only move by xOffset, yOffset.
      * @param xOffset The x offset to be used.
      * @param yOffset The y offset to be used.
      */
-    protected static void offset(int xOffset, int yOffset) { glUniform2f(uni_offset, (float)xOffset / (float)SEEngine.scWidth * SEObj.ampX * 2, (float)yOffset / (float)SEEngine.scHeight * SEObj.ampY * 2); }
+    protected static void offset(int xOffset, int yOffset) { transform(IDENTITY, 0, 0, xOffset, yOffset); }
+
+    /**
+     * Updates the pixel to screen transformation using the current window size and {@link engine.SEObj#SEdirection(SEDirection)}.
+     * Objects are stored in pixels, so this is all that needs to change when the window size or direction changes.
+     */
+    protected static void projection() {
+        if (shaderProgram == -1) return;
+        SEIState.useProgram(shaderProgram);
+        SEIState.uniform4f(SEIState.UNIFORM_PROJECTION, uni_projection, 2 / SEEngine.scWidth * SEObj.ampX, 2 / SEEngine.scHeight * SEObj.ampY, -SEObj.ampX, -SEObj.ampY);
+    }
     
+    /**
+     * Loads {@link engine.SEIShaders#batchProgram} if it is not loaded yet.
+     * The batch size is taken from the uniform space of the vertex shader.
+     * Only works with the expanded layout, the program shares the position and texture attributes of {@link engine.SEIShaders#shaderProgram}.
+     * @return True if the batch program can be used, false otherwise.
+     */
+    protected static boolean loadBatchProgram() {
+        if (batchProgram != -1) return true;
+        if (batchFailed || shaderProgram == -1 || att_position == -1 || att_texCoord == -1) return false;
+        int vectors = glGetInteger(GL_MAX_VERTEX_UNIFORM_COMPONENTS) / 4;
+        batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, (vectors - RESERVED_UNIFORM_VECTORS) / 2));
+        att_wrapper = 0;
+        while (att_wrapper == att_position || att_wrapper == att_texCoord || att_wrapper == att_layer) att_wrapper++;
+        int program = glCreateProgram();
+        glBindAttribLocation(program, att_position, "position");
+        glBindAttribLocation(program, att_texCoord, "texCoord");
+        glBindAttribLocation(program, att_layer, "layer");
+        glBindAttribLocation(program, att_wrapper, "wrapper");
+        String vertexSource = BATCH_VERTEX_SHADER.replace("BATCH_VECTORS", Integer.toString(batchSize * 2));
+        if (!build(program, vertexSource, SHADER_SOURCES[fragComponentMode.ordinal() + 1], SEMessageType.MSG_TYPE_FAIL)) { batchFailed = true; return false; }
+        batchProgram = program;
+        uni_wrappers = glGetUniformLocation(batchProgram, "wrappers");
+        uni_wrapper_base = glGetUniformLocation(batchProgram, "wrapper_base");
+        uni_batch_projection = glGetUniformLocation(batchProgram, "projection");
+        return true;
+    }
+
+    /**
+     * Makes {@link engine.SEIShaders#batchProgram} current and points the wrapper attribute at wrapperBuffer.
+     * Call {@link engine.SEIShaders#endBatches()} once all batches are drawn.
+     * @param wrapperBuffer The buffer holding the wrapper of every vertex.
+     */
+    protected static void beginBatches(int wrapperBuffer) {
+        SEIState.useProgram(batchProgram);
+        SEIState.uniform4f(SEIState.UNIFORM_PROJECTION, uni_batch_projection, 2 / SEEngine.scWidth * SEObj.ampX, 2 / SEEngine.scHeight * SEObj.ampY, -SEObj.ampX, -SEObj.ampY);
+        SEIState.bindArrayBuffer(wrapperBuffer);
+        glVertexAttribPointer(att_wrapper, 1, GL_FLOAT, false, 0, 0);
+        glEnableVertexAttribArray(att_wrapper);
+    }
+
+    /**
+     * Sets the wrappers of the next batch.
+     * @param base The pointer of the first wrapper in the batch.
+     * @param wrappers Two vectors for every wrapper, from the buffer's position to its limit.
+     */
+    protected static void batch(int base, FloatBuffer wrappers) {
+        glUniform1f(uni_wrapper_base, base);
+        glUniform4fv(uni_wrappers, wrappers);
+    }
+
+    /**
+     * Turns the wrapper attribute off again, so {@link engine.SEIShaders#shaderProgram} does not read it.
+     */
+    protected static void endBatches() { glDisableVertexAttribArray(att_wrapper); }
+
+    private static int maxAttributes = -1;
+
+    /**
+     * Disables every vertex attribute array except used and resets its divisor.
+     * Attributes enabled for an earlier layout or program would otherwise stay enabled, and their locations are lost once the program is reloaded.
+     * @param used The attribute locations the current layout uses.
+     */
+    private static void disableOtherAttributes(int... used) {
+        if (maxAttributes == -1) maxAttributes = glGetInteger(GL_MAX_VERTEX_ATTRIBS);
+        boolean divisors = GL.getCapabilities().GL_ARB_instanced_arrays;
+        for (int a = 0; a < maxAttributes; a++) {
+            boolean inUse = false;
+            for (int location : used) inUse |= location == a;
+            if (inUse) continue;
+            glDisableVertexAttribArray(a);
+            if (divisors) glVertexAttribDivisorARB(a, 0);
+        }
+    }
+
     /**
      * Adds Vertex Attribute Pointers to the currently bound buffer.
+     * The layout follows {@link engine.SEObj#isPacked()} and {@link engine.SEObj#isInstanced()}.
      */
     protected static void createPointer() {
-        glUseProgram(shaderProgram);
-        glVertexAttribPointer(att_position, 2, GL_FLOAT, false, Float.SIZE/8*4, 0);
-        glVertexAttribPointer(att_texCoord, 2, GL_FLOAT, false, Float.SIZE/8*4, Float.SIZE/8*2);
+        SEIState.useProgram(shaderProgram);
+        if (SEObj.isInstanced()) {
+            disableOtherAttributes(att_corner, att_rect, att_texRect, SEObj.isLayered() ? att_layer : -1);
+            if (cornerBuffer == -1) {
+                cornerBuffer = glGenBuffers();
+                SEIState.bindArrayBuffer(cornerBuffer);
+                glBufferData(GL_ARRAY_BUFFER, new float[] {0, 0, 1, 0, 1, 1, 0, 1}, GL_STATIC_DRAW);
+            }
+            SEIState.bindArrayBuffer(cornerBuffer);
+            glVertexAttribPointer(att_corner, 2, GL_FLOAT, false, 0, 0);
+            glEnableVertexAttribArray(att_corner);
+            glVertexAttribDivisorARB(att_corner, 0);
+            glEnableVertexAttribArray(att_rect);
+            glEnableVertexAttribArray(att_texRect);
+            glVertexAttribDivisorARB(att_rect, 1);
+            glVertexAttribDivisorARB(att_texRect, 1);
+            if (SEObj.isLayered()) { glEnableVertexAttribArray(att_layer); glVertexAttribDivisorARB(att_layer, 1); }
+            else { glDisableVertexAttribArray(att_layer); glVertexAttrib1f(att_layer, 0); }
+            instancePointer(0);
+            return;
+        }
+        disableOtherAttributes(att_position, att_texCoord, SEObj.isLayered() ? att_layer : -1);
+        if (GL.getCapabilities().GL_ARB_instanced_arrays) {
+            glVertexAttribDivisorARB(att_position, 0);
+            glVertexAttribDivisorARB(att_texCoord, 0);
+            glVertexAttribDivisorARB(att_layer, 0);
+        }
+        if (SEObj.isPacked()) {
+            glVertexAttribPointer(att_position, 2, GL_SHORT, false, SEObj.getVertexBytes(), 0);
+            glVertexAttribPointer(att_texCoord, 2, GL_UNSIGNED_SHORT, true, SEObj.getVertexBytes(), Short.SIZE/8*2);
+        } else {
+            glVertexAttribPointer(att_position, 2, GL_FLOAT, false, SEObj.getVertexBytes(), 0);
+            glVertexAttribPointer(att_texCoord, 2, GL_FLOAT, false, SEObj.getVertexBytes(), Float.SIZE/8*2);
+        }
         glEnableVertexAttribArray(att_position);
         glEnableVertexAttribArray(att_texCoord);
+        if (SEObj.isLayered()) {
+            glVertexAttribPointer(att_layer, 1, SEObj.isPacked() ? GL_SHORT : GL_FLOAT, false, SEObj.getVertexBytes(), SEObj.getLayerOffset());
+            glEnableVertexAttribArray(att_layer);
+        } else { glDisableVertexAttribArray(att_layer); glVertexAttrib1f(att_layer, 0); }
+    }
+
+    /**
+     * Points the per-instance attributes at the object firstObject in {@link engine.SEObj#mainBuffer}.
+     * Instance number 0 of the next instanced draw will be that object.
+     * @param firstObject The object the next instanced draw starts at.
+     */
+    protected static void instancePointer(int firstObject) {
+        long start = (long)firstObject * SEObj.getVertexBytes();
+        SEIState.bindArrayBuffer(SEObj.mainBuffer);
+        if (SEObj.isPacked()) {
+            glVertexAttribPointer(att_rect, 4, GL_SHORT, false, SEObj.getVertexBytes(), start);
+            glVertexAttribPointer(att_texRect, 4, GL_UNSIGNED_SHORT, true, SEObj.getVertexBytes(), start + Short.SIZE/8*4);
+        } else {
+            glVertexAttribPointer(att_rect, 4, GL_FLOAT, false, SEObj.getVertexBytes(), start);
+            glVertexAttribPointer(att_texRect, 4, GL_FLOAT, false, SEObj.getVertexBytes(), start + Float.SIZE/8*4);
+        }
+        if (SEObj.isLayered()) glVertexAttribPointer(att_layer, 1, SEObj.isPacked() ? GL_SHORT : GL_FLOAT, false, SEObj.getVertexBytes(), start + SEObj.getLayerOffset());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,161 @@
+/*
+ * SEEngine OpenGL 2.1 Engine
+ * Copyright (C) 2017  desgroup
+
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package engine;
+
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+
+/**
+ * Remembers the OpenGL state the engine has set and skips calls that would not change it.
+ * Covers the shader program, the array and element buffer binds, the 2D texture bind and the engine's uniforms.
+ * Every state change of these kinds should go through here, or the cache has to be told with the forget functions.
+ * @author desgroup
+ * @version SEAlpha4a
+ */
+class SEIState {
+    private SEIState() {}
+
+    /**
+     * Uniform slot of the transform uniform.
+     */
+    protected static final int UNIFORM_TRANSFORM = 0;
+    /**
+     * Uniform slot of the projection uniform.
+     */
+    protected static final int UNIFORM_PROJECTION = 1;
+
+    private static int program = -1;
+    private static int arrayBuffer = -1;
+    private static int elementBuffer = -1;
+    private static int texture = -1;
+    private static final float[][] uniforms = { new float[9], new float[4] };
+    private static final boolean[] uniformKnown = new boolean[2];
+
+    private static int issued = 0, skipped = 0;
+    /**
+     * Amount of state calls issued during the last frame.
+     */
+    protected static int lastIssued = 0;
+    /**
+     * Amount of state calls skipped during the last frame.
+     */
+    protected static int lastSkipped = 0;
+
+    /**
+     * Starts counting a new frame.
+     */
+    protected static void frame() {
+        lastIssued = issued; lastSkipped = skipped;
+        issued = 0; skipped = 0;
+    }
+
+    private static boolean changed(boolean changed) {
+        if (changed) issued++; else skipped++;
+        return changed;
+    }
+
+    /**
+     * Makes program the current shader program.
+     * @param id The OpenGL program.
+     */
+    protected static void useProgram(int id) {
+        if (!changed(program != id)) return;
+        program = id;
+        glUseProgram(id);
+        Arrays.fill(uniformKnown, false);
+    }
+
+    /**
+     * Binds a buffer to GL_ARRAY_BUFFER.
+     * @param id The OpenGL buffer.
+     */
+    protected static void bindArrayBuffer(int id) {
+        if (!changed(arrayBuffer != id)) return;
+        arrayBuffer = id;
+        glBindBuffer(GL_ARRAY_BUFFER, id);
+    }
+
+    /**
+     * Binds a buffer to GL_ELEMENT_ARRAY_BUFFER.
+     * @param id The OpenGL buffer.
+     */
+    protected static void bindElementBuffer(int id) {
+        if (!changed(elementBuffer != id)) return;
+        elementBuffer = id;
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, id);
+    }
+
+    /**
+     * Binds a texture to GL_TEXTURE_2D.
+     * @param id The OpenGL texture.
+     */
+    protected static void bindTexture(int id) {
+        if (!changed(texture != id)) return;
+        texture = id;
+        glBindTexture(GL_TEXTURE_2D, id);
+    }
+
+    /**
+     * Tells the cache a buffer was deleted. OpenGL unbinds deleted buffers.
+     * @param id The deleted OpenGL buffer.
+     */
+    protected static void forgetBuffer(int id) {
+        if (arrayBuffer == id) arrayBuffer = 0;
+        if (elementBuffer == id) elementBuffer = 0;
+    }
+
+    /**
+     * Tells the cache a texture was deleted. OpenGL unbinds deleted textures.
+     * @param id The deleted OpenGL texture.
+     */
+    protected static void forgetTexture(int id) { if (texture == id) texture = 0; }
+
+    /**
+     * Sets a vec4 uniform of the current program.
+     * @param slot One of the UNIFORM_ constants.
+     * @param location The uniform location.
+     * @param x The first value.
+     * @param y The second value.
+     * @param z The third value.
+     * @param w The fourth value.
+     */
+    protected static void uniform4f(int slot, int location, float x, float y, float z, float w) {
+        float[] known = uniforms[slot];
+        if (!changed(!uniformKnown[slot] || known[0] != x || known[1] != y || known[2] != z || known[3] != w)) return;
+        uniformKnown[slot] = true;
+        known[0] = x; known[1] = y; known[2] = z; known[3] = w;
+        glUniform4f(location, x, y, z, w);
+    }
+
+    /**
+     * Sets a mat3 uniform of the current program.
+     * @param slot One of the UNIFORM_ constants.
+     * @param location The uniform location.
+     * @param matrix The 9 values of the matrix, column by column.
+     */
+    protected static void uniformMatrix3(int slot, int location, float[] matrix) {
+        float[] known = uniforms[slot];
+        if (!changed(!uniformKnown[slot] || !Arrays.equals(known, matrix))) return;
+        uniformKnown[slot] = true;
+        System.arraycopy(matrix, 0, known, 0, 9);
+        glUniformMatrix3fv(location, false, matrix);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * SEEngine OpenGL 2.1 Engine
+ * Copyright (C) 2017  desgroup
+
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package engine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Interns textures loaded through {@link engine.SETex#SEcached(String)} and {@link engine.SETex#SEcached(float, float, float, float)}.
+ * Entries are kept in least recently used order so unused ones can be evicted when texture memory runs out.
+ * @author desgroup
+ * @version SEAlpha4a
+ */
+class SEITextureCache {
+    private SEITextureCache() {}
+
+    private static final LinkedHashMap<String, SETex> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Amount of lookups that found a texture.
+     */
+    protected static long hits = 0;
+    /**
+     * Amount of lookups that had to load a texture.
+     */
+    protected static long misses = 0;
+    /**
+     * Amount of unused textures deleted to make room.
+     */
+    protected static long evictions = 0;
+
+    /**
+     * Finds a texture and adds a reference to it.
+     * @param key The key of the texture.
+     * @return The texture, or null if it is not cached.
+     */
+    protected static SETex acquire(String key) {
+        SETex tex = entries.get(key);
+        if (tex == null) { misses++; return null; }
+        hits++;
+        tex.references++;
+        return tex;
+    }
+
+    /**
+     * Adds a newly loaded texture with one reference.
+     * Textures that failed to load are not cached.
+     * @param key The key of the texture.
+     * @param tex The texture.
+     * @return tex.
+     */
+    protected static SETex put(String key, SETex tex) {
+        if (tex.area == null) return tex;
+        tex.cacheKey = key;
+        tex.references = 1;
+        entries.put(key, tex);
+        return tex;
+    }
+
+    /**
+     * Removes a texture from the cache without deleting it.
+     * @param tex The texture.
+     */
+    protected static void remove(SETex tex) {
+        if (tex.cacheKey != null && entries.get(tex.cacheKey) == tex) entries.remove(tex.cacheKey);
+        tex.cacheKey = null;
+    }
+
+    /**
+     * Deletes the least recently used textures that have no references left, all from the same page,
+     * until they covered at least area pixels. The textures are deleted together, so the page's free space is only updated once.
+     * @param area The area (in pixels) that is needed.
+     * @return The texture page space was freed on, or -1 if no texture could be evicted.
+     */
+    protected static int evict(long area) {
+        ArrayList<SETex> evicted = new ArrayList<>();
+        int page = -1;
+        long freed = 0;
+        for (SETex tex : entries.values()) {
+            if (tex.references > 0 || (page != -1 && tex.page != page)) continue;
+            page = tex.page;
+            evicted.add(tex);
+            if (tex.area != null) freed += (long)tex.area.w * tex.area.h;
+            if (freed >= area) break;
+        }
+        if (evicted.isEmpty()) return -1;
+        SETex.deleteAll(evicted);
+        evictions += evicted.size();
+        return page;
+    }
+
+    /**
+     * Forgets every texture. Called when texture memory is cleared.
+     */
+    protected static void clear() {
+        for (SETex tex : entries.values()) tex.cacheKey = null;
+        entries.clear();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * SEEngine OpenGL 2.1 Engine
+ * Copyright (C) 2017  desgroup
+
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package engine;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.BufferUtils;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Draws many {@link engine.SEWrappedObj} with a handful of draw calls.
+ * Every vertex of a wrapped object stores the {@link engine.SEWrappedObj#pointer} of its wrapper in a separate buffer.
+ * Wrappers are split into batches of {@link engine.SEIShaders#batchSize} by pointer,
+ * and each batch uploads their screen space transforms as one uniform array and draws every texture page once.
+ * @author desgroup
+ * @version SEAlpha4a
+ */
+class SEIWrapperBatches {
+    private SEIWrapperBatches() {}
+
+    private static final int OBJECTSIZE = 4;
+
+    /**
+     * True if the wrapper of some vertex changed and {@link engine.SEIWrapperBatches#indexBuffer} has to be regenerated.
+     * Set when a wrapper is created or deleted and when a wrapped object moves to another slot.
+     */
+    protected static boolean indicesDirty = true;
+
+    private static int indexBuffer = -1;
+    private static int indexCapacity = 0;
+
+    private static FloatBuffer uniforms = null;
+    private static final int[] totalOffset = new int[2];
+    private static final float[] screenValues = new float[6];
+    private static final SEIPagedRanges batchRanges = new SEIPagedRanges();
+
+    /**
+     * Tells if wrapped objects can be drawn in batches with the current settings.
+     * @return True if {@link engine.SEEngine#SEbatchWrappedObjects} is enabled and nothing prevents batching.
+     */
+    protected static boolean available() {
+        return SEEngine.SEbatchWrappedObjects && !SEEngine.SEdoubleWrappedObjects && !SEEngine.SEuseWrappedObjectDepth
+                && !SEObj.isInstanced() && SEIShaders.loadBatchProgram();
+    }
+
+    /**
+     * Writes the pointer of its wrapper into every vertex of every wrapped object and uploads it.
+     * Vertices of objects that are not wrapped keep 0, they are never part of a batch.
+     */
+    private static void genIndices() {
+        int capacity = SEObj.SEgetMaxOjectCount();
+        FloatBuffer indices = memCallocFloat(capacity * OBJECTSIZE);
+        for (SEWrappedObj wObj : SEWrappedObj.knownObjects) {
+            if (wObj == null) continue;
+            for (SEObj obj : wObj.objs) {
+                if (obj.object == -1) continue;
+                for (int v = 0; v < OBJECTSIZE; v++) indices.put(obj.object * OBJECTSIZE + v, wObj.pointer);
+            }
+        }
+        if (indexBuffer == -1) indexBuffer = glGenBuffers();
+        SEIState.bindArrayBuffer(indexBuffer);
+        glBufferData(GL_ARRAY_BUFFER, indices, GL_DYNAMIC_DRAW);
+        memFree(indices);
+        indexCapacity = capacity;
+        indicesDirty = false;
+    }
+
+    /**
+     * Draws every wrapped object, batch by batch.
+     * @param blended True to draw the {@link engine.SEWrappedObj#blendedRanges}, false to draw the {@link engine.SEWrappedObj#drawRanges}.
+     */
+    protected static void draw(boolean blended) {
+        if (indicesDirty || indexCapacity != SEObj.SEgetMaxOjectCount()) genIndices();
+        int size = SEIShaders.batchSize;
+        if (uniforms == null || uniforms.capacity() != size * 8) uniforms = BufferUtils.createFloatBuffer(size * 8);
+        SEIShaders.beginBatches(indexBuffer);
+        int count = SEWrappedObj.knownObjects.size();
+        for (int base = 0; base < count; base += size) {
+            int end = Math.min(count, base + size);
+            batchRanges.clear();
+            uniforms.clear();
+            for (int a = base; a < end; a++) {
+                SEWrappedObj wObj = SEWrappedObj.knownObjects.get(a);
+                if (wObj == null) { for (int b = 0; b < 8; b++) uniforms.put(0); continue; }
+                if (wObj.rangesDirty) wObj.genDrawRanges();
+                batchRanges.addAll(blended ? wObj.blendedRanges : wObj.drawRanges);
+                wObj.totalOffset(totalOffset);
+                SEIShaders.screenTransform(wObj.matrix, wObj.centerX(), wObj.centerY(), totalOffset[0], totalOffset[1], screenValues);
+                uniforms.put(screenValues[0]).put(screenValues[1]).put(screenValues[2]).put(screenValues[3]);
+                uniforms.put(screenValues[4]).put(screenValues[5]).put(0).put(0);
+            }
+            uniforms.flip();
+            SEIShaders.batch(base, uniforms);
+            batchRanges.draw();
+        }
+        SEIShaders.endBatches();
+    }
+}
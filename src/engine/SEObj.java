@@ -17,11 +17,22 @@
  */
 package engine;
 
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.Set;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
 
 import static engine.SEConstants.*;
+import static org.lwjgl.opengl.ARBCopyBuffer.*;
+import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.system.MemoryUtil.*;
 
 /**
  * Stores some information for an object to be displayed on screen.
@@ -33,21 +44,130 @@ public class SEObj {
     private SEObj() {}
 
     private static final int OBJECTSIZE = 4;
-    private static final int OBJECTWIDTH = 4;
-    private static boolean[] objectSpace = null;
-    private static float[] objectMap = null;
+    private static final int FLOAT_VERTEX_BYTES = 16;
+    private static final int PACKED_VERTEX_BYTES = 8;
+    private static final int LAYER_BYTES = 4;
+    private static final int MAX_LAYER = 32767;
+    private static final int FLUSH_MERGE_GAP = 4;
+    private static final int SHRINK_DELAY = 600;
+    private static final SEIObjectSpace slots = new SEIObjectSpace();
+    private static final BitSet objectSpace = slots.used;
+    private static int objectCapacity = 0;
+    private static int minObjectCapacity = 0;
+    private static int lowUseFrames = 0;
+    private static SEObj[] objectSlots = new SEObj[0];
+    private static ByteBuffer objectMap = null;
+    private static int vertexBytes = FLOAT_VERTEX_BYTES;
+    private static int objectBytes = FLOAT_VERTEX_BYTES * OBJECTSIZE;
+    private static boolean packed = false;
+    private static boolean instanced = false;
+    private static boolean layered = false;
+    private static BitSet dirtySpace = new BitSet();
+    private static BitSet hiddenSpace = new BitSet();
+    private static SEIPagedRanges drawRanges = new SEIPagedRanges();
+    private static boolean rangesDirty = true;
+    private static long[] layerOrder = new long[0];
+    private static int opaqueObjects = 0, blendedFirst = 0, layerObjects = 0;
+    private static final SEIDrawRanges layerRun = new SEIDrawRanges();
+
+    private static int flushedObjects = 0;
+    private static int flushedBytes = 0;
+    private static int flushedRanges = 0;
+    private static int compactedObjects = 0;
 
     /**
      * The main OpenGL buffer containing all Object Data.
      */
     protected static int mainBuffer = -1;
 
+    /**
+     * A static OpenGL element buffer splitting every object in {@link engine.SEObj#mainBuffer} into two triangles.
+     * Holds 6 unsigned int indices per object and is used if {@link engine.SEEngine#SEuseTriangleIndices} is enabled.
+     */
+    protected static int indexBuffer = -1;
+
+    /**
+     * Doubles the object space instead of failing when every object is in use.
+     * Mirrors {@link engine.SEProgramData#growObjectSpace}.
+     */
+    protected static boolean growObjectSpace = true;
+
+    /**
+     * Halves the object space again after it has been mostly unused for a while.
+     * Mirrors {@link engine.SEProgramData#shrinkObjectSpace}.
+     */
+    protected static boolean shrinkObjectSpace = false;
+
+    /**
+     * Stores vertices as 16-bit pixel positions and normalized 16-bit texture coordinates instead of floats.
+     * Mirrors {@link engine.SEProgramData#usePackedVertices} and only takes effect when the object space is cleared.
+     */
+    protected static boolean packedVertices = false;
+
+    /**
+     * Stores {@link engine.SEObj#z} with every vertex and draws with the depth test.
+     * Mirrors {@link engine.SEProgramData#useDepthBuffer} and only takes effect when the object space is cleared.
+     */
+    protected static boolean depthVertices = false;
+
+    /**
+     * Returns true if the current object space stores packed vertices.
+     * @return True if vertices are 16-bit, false if they are floats.
+     */
+    protected static boolean isPacked() { return packed; }
+
+    /**
+     * Returns true if objects are stored as one instance record each and expanded by the vertex shader.
+     * @return True if objects are drawn instanced.
+     */
+    protected static boolean isInstanced() { return instanced; }
+
+    /**
+     * Returns true if the current object space stores a layer with every vertex and draws with the depth test.
+     * @return True if objects are layered by the depth buffer.
+     */
+    protected static boolean isLayered() { return layered; }
+
+    /**
+     * Returns where the layer is stored inside every vertex (or instance record), a float or with packed vertices a short.
+     * @return The offset (in bytes) of the layer.
+     */
+    protected static int getLayerOffset() { return vertexBytes - LAYER_BYTES; }
+
+    /**
+     * Returns the size (in bytes) of one vertex in {@link engine.SEObj#mainBuffer}.
+     * With instancing, this is the size of one instance record.
+     * @return The size of one vertex.
+     */
+    protected static int getVertexBytes() { return vertexBytes; }
+
+    /**
+     * Switches instanced objects on or off, falling back to expanded objects if the context lacks ARB_instanced_arrays or ARB_draw_instanced.
+     * Must be followed by reloading the shaders and clearing the object space.
+     * Mirrors {@link engine.SEProgramData#useInstancedObjects}.
+     * @param value True to store one instance record per object.
+     */
+    protected static void setInstanced(boolean value) {
+        GLCapabilities caps = GL.getCapabilities();
+        instanced = value && caps.GL_ARB_instanced_arrays && caps.GL_ARB_draw_instanced;
+        if (value && !instanced) SEEngine.log(SEMessageType.MSG_TYPE_OPT, SEMessage.MSG_INSTANCING_UNAVAILABLE);
+    }
+
+    private static void layout() {
+        packed = packedVertices;
+        layered = depthVertices;
+        vertexBytes = (packed ? PACKED_VERTEX_BYTES : FLOAT_VERTEX_BYTES) * (instanced ? 2 : 1) + (layered ? LAYER_BYTES : 0);
+        objectBytes = instanced ? vertexBytes : vertexBytes * OBJECTSIZE;
+        if (layered) { glEnable(GL_DEPTH_TEST); glDepthFunc(GL_LEQUAL); }
+        else glDisable(GL_DEPTH_TEST);
+    }
+
     /**
      * Counts how far the furthest object is in {@link engine.SEObj#mainBuffer}.
-     * The engine will only draw as far as this drawSpace.
+     * The engine only draws the visible objects below this drawSpace, skipping hidden and deleted ones.
      * Is not used if {@link engine.SEEngine#SEuseWrappedObjects} is enabled.
      */
-    public static int objectDrawSpace = -1;
+    public static int objectDrawSpace = 0;
 
     /**
      * X direction.
@@ -66,6 +186,7 @@ public class SEObj {
      * @param direction One of the DIRECTION_ constants to set the direction to.
      */
     public static void SEdirection(SEDirection direction) {
+        byte lastX = ampX, lastY = ampY;
         switch (direction) {
             case DIRECTION_BOTTOM_TO_TOP: ampY = 1; break;
             case DIRECTION_TOP_TO_BOTTOM: ampY = -1; break;
@@ -73,31 +194,144 @@ public class SEObj {
             case DIRECTION_RIGHT_TO_LEFT: ampX = -1; break;
             default: break;
         }
+        if (lastX == ampX && lastY == ampY) return;
+        SEIShaders.projection();
+        if (instanced) return;
+        // Positions are flipped by the shader, but texture coordinates keep the texture upright and have to be regenerated.
+        for (int a = objectSpace.nextSetBit(0); a != -1; a = objectSpace.nextSetBit(a + 1)) {
+            objectSlots[a].genData();
+            dirtySpace.set(a);
+        }
     }
 
     /**
      * Lowers {@link engine.SEObj#objectDrawSpace} to the lowest value without losing functionality.
+     * The draw space is already kept tight on every creation and deletion, so this is only needed if it was changed by hand.
      */
-    public static void SEcollapseObjectDrawSpace() {
-        for (int a = objectDrawSpace - 1; a >= 0; a--) {
-            if (objectSpace[a]) { objectDrawSpace = a + 1; break; }
-            if (a == 0) objectDrawSpace = 0;
-        }
-    }
+    public static void SEcollapseObjectDrawSpace() { objectDrawSpace = objectSpace.length(); }
 
     /**
      * Returns the maximum amount of unique {@link engine.SEObj} able to exist at one time.
-     * Should be the same as your {@link engine.SEProgram} {@link engine.SEProgramData#maxObjects} value.
+     * Starts as your {@link engine.SEProgram} {@link engine.SEProgramData#maxObjects} value, but may change if {@link engine.SEProgramData#growObjectSpace} or {@link engine.SEProgramData#shrinkObjectSpace} are enabled.
      * @return The maximum amount of unique {@link engine.SEObj} able to exist at one time.
      */
-    public static int SEgetMaxOjectCount() { return objectSpace.length; }
+    public static int SEgetMaxOjectCount() { return objectCapacity; }
+
+    /**
+     * Returns how many objects were uploaded during the last flush.
+     * Only counts objects saved while {@link engine.SEEngine#SEdeferObjectSaves} was enabled.
+     * @return The amount of objects uploaded during the last frame.
+     */
+    public static int SEgetFlushedObjectCount() { return flushedObjects; }
+
+    /**
+     * Returns how many bytes were uploaded to {@link engine.SEObj#mainBuffer} during the last flush.
+     * May be larger than the flushed object count suggests since small gaps between dirty objects are uploaded with them.
+     * @return The amount of bytes uploaded during the last frame.
+     */
+    public static int SEgetFlushedByteCount() { return flushedBytes; }
+
+    /**
+     * Returns how many buffer uploads were issued during the last flush.
+     * @return The amount of contiguous ranges uploaded during the last frame.
+     */
+    public static int SEgetFlushedRangeCount() { return flushedRanges; }
+
+    /**
+     * Returns how many objects were moved into holes by the compactor during the last frame.
+     * @return The amount of objects relocated during the last frame.
+     */
+    public static int SEgetCompactedObjectCount() { return compactedObjects; }
+
+    /**
+     * Returns the ranges of visible objects to draw when {@link engine.SEEngine#SEuseWrappedObjects} is disabled.
+     * The ranges are only rebuilt after objects were created, deleted, hidden, shown or moved to another texture page.
+     * @return The current draw ranges, grouped by texture page.
+     */
+    protected static SEIPagedRanges getDrawRanges() {
+        if (!rangesDirty) return drawRanges;
+        drawRanges.clear();
+        for (int a = objectSpace.nextSetBit(0); a != -1; a = objectSpace.nextSetBit(a + 1)) {
+            if (!hiddenSpace.get(a)) drawRanges.add(objectSlots[a].page, a, 1);
+        }
+        rangesDirty = false;
+        return drawRanges;
+    }
+
+    private static boolean isBlended() { return SERImages.components == 4 && SEIShaders.fragComponentMode == SEFragMode.FRAG_MODE_NORMAL; }
+
+    /**
+     * Tells if the object in a slot has to be drawn without writing depth, after everything opaque.
+     * Only true on a layered object space with a blended texture format, for objects that are not {@link engine.SEObj#opaque}.
+     * @param slot A slot in use.
+     * @return True if the object is blended over the layers below it.
+     */
+    protected static boolean isSlotBlended(int slot) { return layered && !objectSlots[slot].opaque && isBlended(); }
+
+    /**
+     * Sorts the visible objects for {@link engine.SEObj#drawLayers()}.
+     * Opaque objects are grouped by texture page and sorted front to back, every other object is sorted back to front.
+     * Opaque objects fill the order from the start, blended ones from the end.
+     * Ties on one layer keep slot order, but opaque objects on different pages are ordered by page first.
+     * Each entry holds the sort key in its upper 32 bits and the slot in its lower 32 bits.
+     */
+    private static void sortLayers() {
+        int visible = objectSpace.cardinality();
+        if (layerOrder.length < visible) layerOrder = new long[Math.max(visible, layerOrder.length * 2)];
+        boolean blended = isBlended();
+        opaqueObjects = 0; blendedFirst = visible;
+        for (int a = objectSpace.nextSetBit(0); a != -1; a = objectSpace.nextSetBit(a + 1)) {
+            if (hiddenSpace.get(a)) continue;
+            SEObj obj = objectSlots[a];
+            long layer = obj.getLayer() + MAX_LAYER;
+            if (obj.opaque || !blended) layerOrder[opaqueObjects++] = (long)obj.page << 48 | (2 * MAX_LAYER - layer) << 32 | a;
+            else layerOrder[--blendedFirst] = layer << 32 | a;
+        }
+        layerObjects = visible;
+        Arrays.sort(layerOrder, 0, opaqueObjects);
+        Arrays.sort(layerOrder, blendedFirst, layerObjects);
+        rangesDirty = false;
+    }
+
+    private static void drawRun(int from, int to) {
+        layerRun.clear();
+        int page = -1;
+        for (int a = from; a < to; a++) {
+            int slot = (int)layerOrder[a];
+            int slotPage = objectSlots[slot].page;
+            if (slotPage != page && layerRun.count > 0) { SETex.bindPage(page); layerRun.draw(); layerRun.clear(); }
+            page = slotPage;
+            layerRun.add(slot, 1);
+        }
+        if (layerRun.count > 0) { SETex.bindPage(page); layerRun.draw(); }
+    }
 
     /**
-     * A hidden blank object used with {@link engine.SEObj#visible(boolean)}.
-     * May have a different {@link engine.SEObj#object} value but should be otherwise blank.
+     * Draws every visible object when the object space is layered and {@link engine.SEEngine#SEuseWrappedObjects} is disabled.
+     * Opaque objects are drawn first, front to back and one texture page at a time, so the depth test skips hidden pixels.
+     * Blended objects follow back to front without writing depth, so they blend over each other and over the opaque objects in order.
+     * The order is only sorted again after objects were created, deleted, hidden, shown, moved to another texture page or saved with a new layer.
      */
-    protected static SEObj blank = new SEObj();
-    
+    protected static void drawLayers() {
+        if (rangesDirty) sortLayers();
+        drawRun(0, opaqueObjects);
+        glDepthMask(false);
+        drawRun(blendedFirst, layerObjects);
+        glDepthMask(true);
+    }
+
+    /**
+     * Returns the texture page of the object in a slot.
+     * @param slot A slot in use.
+     * @return The texture page the object was last saved with.
+     */
+    protected static int getSlotPage(int slot) { return objectSlots[slot].page; }
+
+    private void rangesChanged() {
+        rangesDirty = true;
+        if (wrappers != null) for (SEWrappedObj wrapper : wrappers) wrapper.rangesDirty = true;
+    }
+
     /**
      * Value is true if the object is has been hidden and is currently hidden with {@link engine.SEObj#visible(boolean)}.
      */
@@ -107,11 +341,22 @@ public class SEObj {
      */
     protected boolean isWrapped = false;
 
+    /**
+     * Every {@link engine.SEWrappedObj} containing this object.
+     * Null until the object is wrapped.
+     */
+    protected ArrayList<SEWrappedObj> wrappers = null;
+
     /**
      * Location in the OpenGL buffer {@link engine.SEObj#mainBuffer} where the object data hides itself.
      */
     protected int object = 0;
 
+    /**
+     * The texture page this object was last saved with.
+     */
+    protected int page = 0;
+
     /**
     * The x coordinate of the object (in pixels).
     * If you make any changes, be sure to save them with {@link engine.SEObj#save()}.
@@ -140,6 +385,28 @@ public class SEObj {
      */
     public SETex tex = SETex.BLANK_TEXTURE;
 
+    /**
+     * The layer of the object, higher layers are drawn over lower ones.
+     * Only used if {@link engine.SEProgramData#useDepthBuffer} is enabled, and clamped to -32767 to 32767.
+     * Objects on the same layer are drawn in slot order, within one texture page.
+     * Slots of deleted objects are reused, so slot order is not creation order.
+     * If you make any changes, be sure to save them with {@link engine.SEObj#save()}.
+     */
+    public int z = 0;
+
+    /**
+     * Tells the engine this object's texture has no partly transparent pixels.
+     * Opaque objects on a layered object space are drawn front to back first, so pixels covered by higher layers are skipped.
+     * Leave it false for textures that need blending, those are drawn back to front afterwards.
+     * If you make any changes, be sure to save them with {@link engine.SEObj#save()}.
+     */
+    public boolean opaque = false;
+
+    private int savedLayer = 0;
+    private boolean savedOpaque = false;
+
+    private int getLayer() { return Math.max(-MAX_LAYER, Math.min(MAX_LAYER, z)); }
+
     /**
      * Calculates and returns the x coordinate of the center of the object.
      * @return the x coordinate of the center of the object.
@@ -152,24 +419,121 @@ public class SEObj {
      */
     public int getCenterY() { return y + h / 2; }
 
-    private float[] genData() {
-        return new float[] {
-                ((float)x / SEEngine.scWidth * 2 - 1) * ampX, ((float)y / SEEngine.scHeight * 2 - 1) * ampY, (float)(tex.texX + (ampX==-1?tex.texW:0)), (float)(tex.texY + (ampY==-1?0:tex.texH)),
-                ((float)(x + w) / SEEngine.scWidth * 2 - 1) * ampX, ((float)y / SEEngine.scHeight * 2 - 1) * ampY, (float)(tex.texX + (ampX==-1?0:tex.texW)), (float)(tex.texY + (ampY==-1?0:tex.texH)),
-                ((float)(x + w) / SEEngine.scWidth * 2 - 1) * ampX, ((float)(y + h) / SEEngine.scHeight * 2 - 1) * ampY, (float)(tex.texX + (ampX==-1?0:tex.texW)), (float)(tex.texY + (ampY==-1?tex.texH:0)),
-                ((float)x / SEEngine.scWidth * 2 - 1) * ampX, ((float)(y + h) / SEEngine.scHeight * 2 - 1) * ampY, (float)(tex.texX + (ampX==-1?tex.texW:0)), (float)(tex.texY + (ampY==-1?tex.texH:0)),
-        };
+    private void vertex(int at, int X, int Y, double U, double V) {
+        if (packed) {
+            objectMap.putShort(at, (short)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, X)));
+            objectMap.putShort(at + 2, (short)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Y)));
+            objectMap.putShort(at + 4, (short)Math.round(U * 0xffff));
+            objectMap.putShort(at + 6, (short)Math.round(V * 0xffff));
+        } else {
+            objectMap.putFloat(at, X);
+            objectMap.putFloat(at + 4, Y);
+            objectMap.putFloat(at + 8, (float)U);
+            objectMap.putFloat(at + 12, (float)V);
+        }
+        if (layered) layer(at);
+    }
+
+    private void layer(int at) {
+        at += getLayerOffset();
+        if (packed) objectMap.putShort(at, (short)getLayer());
+        else objectMap.putFloat(at, getLayer());
+    }
+
+    private void genData() {
+        int at = object * objectBytes;
+        if (instanced) {
+            if (packed) {
+                objectMap.putShort(at, (short)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, x)));
+                objectMap.putShort(at + 2, (short)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, y)));
+                objectMap.putShort(at + 4, (short)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, w)));
+                objectMap.putShort(at + 6, (short)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, h)));
+                objectMap.putShort(at + 8, (short)Math.round(tex.texX * 0xffff));
+                objectMap.putShort(at + 10, (short)Math.round(tex.texY * 0xffff));
+                objectMap.putShort(at + 12, (short)Math.round(tex.texW * 0xffff));
+                objectMap.putShort(at + 14, (short)Math.round(tex.texH * 0xffff));
+            } else {
+                objectMap.putFloat(at, x).putFloat(at + 4, y).putFloat(at + 8, w).putFloat(at + 12, h);
+                objectMap.putFloat(at + 16, (float)tex.texX).putFloat(at + 20, (float)tex.texY);
+                objectMap.putFloat(at + 24, (float)tex.texW).putFloat(at + 28, (float)tex.texH);
+            }
+            if (layered) layer(at);
+            return;
+        }
+        vertex(at, x, y, tex.texX + (ampX==-1?tex.texW:0), tex.texY + (ampY==-1?0:tex.texH));
+        vertex(at + vertexBytes, x + w, y, tex.texX + (ampX==-1?0:tex.texW), tex.texY + (ampY==-1?0:tex.texH));
+        vertex(at + vertexBytes * 2, x + w, y + h, tex.texX + (ampX==-1?0:tex.texW), tex.texY + (ampY==-1?tex.texH:0));
+        vertex(at + vertexBytes * 3, x, y + h, tex.texX + (ampX==-1?tex.texW:0), tex.texY + (ampY==-1?tex.texH:0));
+    }
+
+    private static void upload(int start, int count) {
+        nglBufferSubData(GL_ARRAY_BUFFER, (long)start * objectBytes, (long)count * objectBytes, memAddress(objectMap, start * objectBytes));
     }
 
     private void pSave() {
-        glBindBuffer(GL_ARRAY_BUFFER, mainBuffer);
-        glBufferSubData(GL_ARRAY_BUFFER, object * OBJECTSIZE * OBJECTWIDTH * OBJECTWIDTH, genData());
+        if (object == -1) return;
+        tex.follow();
+        if (tex.page != page) { page = tex.page; rangesChanged(); }
+        if (layered && (getLayer() != savedLayer || opaque != savedOpaque)) { savedLayer = getLayer(); savedOpaque = opaque; rangesChanged(); }
+        genData();
+        if (SEEngine.SEdeferObjectSaves) { dirtySpace.set(object); return; }
+        SEIState.bindArrayBuffer(mainBuffer);
+        upload(object, 1);
+    }
+
+    /**
+     * Uploads every object saved since the last flush.
+     * Neighbouring dirty objects are merged into as few buffer uploads as possible.
+     * Called by the engine right before every frame is drawn.
+     */
+    protected static void flush() {
+        flushedObjects = 0; flushedBytes = 0; flushedRanges = 0;
+        if (dirtySpace.isEmpty()) return;
+        SEIState.bindArrayBuffer(mainBuffer);
+        int start = dirtySpace.nextSetBit(0);
+        int end = start + 1;
+        for (int a = start; a != -1; a = dirtySpace.nextSetBit(a + 1)) {
+            flushedObjects++;
+            if (a - end > FLUSH_MERGE_GAP) {
+                upload(start, end - start);
+                flushedBytes += (end - start) * objectBytes; flushedRanges++;
+                start = a;
+            }
+            end = a + 1;
+        }
+        upload(start, end - start);
+        flushedBytes += (end - start) * objectBytes; flushedRanges++;
+        dirtySpace.clear();
     }
 
     /**
      * Saves all changes to the object.
      */
-    public void save() { if (!isHidden) pSave(); }
+    public void save() { pSave(); }
+
+    /**
+     * Saves every object using one of the textures, or a sample of one, again.
+     * Used after the textures finished loading, with one pass over the object space for all of them.
+     * @param textures The textures, compared by identity.
+     */
+    protected static void saveTextures(Set<SETex> textures) {
+        if (textures.isEmpty()) return;
+        for (int a = objectSpace.nextSetBit(0); a != -1; a = objectSpace.nextSetBit(a + 1)) {
+            SETex tex = objectSlots[a].tex;
+            if (textures.contains(tex) || (tex.parent != null && textures.contains(tex.parent))) objectSlots[a].pSave();
+        }
+    }
+
+    /**
+     * Saves every object whose texture is on a texture page again.
+     * Used after the textures of the page were moved.
+     * @param page The texture page.
+     */
+    protected static void saveTexturePage(int page) {
+        for (int a = objectSpace.nextSetBit(0); a != -1; a = objectSpace.nextSetBit(a + 1)) {
+            if (objectSlots[a].tex.page == page) objectSlots[a].pSave();
+        }
+    }
 
     /**
      * Constructor.
@@ -180,13 +544,15 @@ public class SEObj {
      * @param T The texture of the object.
      */
     public SEObj(int X, int Y, int W, int H, SETex T) {
-        boolean found = false;
-        int find = -1;
-        for (int a = 0; a < objectSpace.length; a++)  if (!objectSpace[a]) { find = a; found = true; break; }
-        if (!found) { SEEngine.log(SEMessageType.MSG_TYPE_OPT, SEMessage.MSG_OUT_OF_OBJECT_MEMORY); }
-        objectSpace[find] = true;
-        object = find; x = X; y = Y; w = W; h = H; tex = T;
-        objectDrawSpace = Math.max(objectDrawSpace, find + 1); // Let's try this. I didn't really think about this.
+        x = X; y = Y; w = W; h = H; tex = T;
+        int find = slots.next();
+        if (find >= objectCapacity && growObjectSpace) resize(SEIObjectSpace.grownCapacity(objectCapacity, find));
+        if (find >= objectCapacity) { SEEngine.log(SEMessageType.MSG_TYPE_OPT, SEMessage.MSG_OUT_OF_OBJECT_MEMORY); object = -1; return; }
+        slots.take(find);
+        objectSlots[find] = this;
+        rangesDirty = true;
+        object = find;
+        objectDrawSpace = Math.max(objectDrawSpace, find + 1);
         save();
     }
 
@@ -251,17 +617,25 @@ public class SEObj {
      */
     public void move(int X, int Y) { x += X; y += Y; save(); }
 
+    /**
+     * Changes the layer of this object to z.
+     * @param Z The new layer of the object. See {@link engine.SEObj#z}.
+     */
+    public void z(int Z) { z = Z; save(); }
+
     /**
      * Changes the visibility of this object to value.
      * If value is false, the object will be hidden.
      * If the value is true, the object will become visible.
-     * Any changes went unsaved by this object will automatically be saved when made visible.
+     * Hidden objects are left out of the draw ranges, so no data is uploaded when hiding or showing.
      * @param value The visibility level. True for visible, false for invisible.
      */
     public void visible(boolean value) {
-        isHidden = value;
-        if (value) save();
-        else { blank.object = object; save(); }
+        if (isHidden == !value) return;
+        isHidden = !value;
+        if (object == -1) return;
+        hiddenSpace.set(object, isHidden);
+        rangesChanged();
     }
 
     /**
@@ -279,13 +653,120 @@ public class SEObj {
     /**
      * Deletes this object.
      * The object will no longer draw and it's data will be availible for other objects to occupy.
-     * {@link engine.SEObj#SEcollapseObjectDrawSpace()} will be called if {@link engine.SEEngine#SEcollapseObjectDrawSpaceOnDeletion} is enabled.
+     * {@link engine.SEObj#objectDrawSpace} is lowered right away if this object was the furthest one.
      */
     public void delete() {
-        objectSpace[object] = false;
-        data(0, 0, 0, 0, SETex.BLANK_TEXTURE);
-        if (SEEngine.SEcollapseObjectDrawSpaceOnDeletion) SEcollapseObjectDrawSpace();
-        else if (object == objectDrawSpace - 1) objectDrawSpace--;
+        if (object == -1 || !objectSpace.get(object)) return;
+        x = 0; y = 0; w = 0; h = 0; tex = SETex.BLANK_TEXTURE;
+        slots.release(object);
+        hiddenSpace.clear(object);
+        objectSlots[object] = null;
+        if (object == objectDrawSpace - 1) objectDrawSpace = objectSpace.length();
+        rangesChanged();
+        object = -1;
+    }
+
+    /**
+     * Moves obj into the free slot to, keeping its data, visibility and wrappers intact.
+     * The new slot is uploaded with the next flush.
+     * @param obj The object to move.
+     * @param to The free slot to move the object into.
+     */
+    private static void relocate(SEObj obj, int to) {
+        int from = obj.object;
+        memCopy(memAddress(objectMap, from * objectBytes), memAddress(objectMap, to * objectBytes), objectBytes);
+        slots.move(from, to);
+        hiddenSpace.set(to, obj.isHidden); hiddenSpace.clear(from);
+        dirtySpace.set(to); dirtySpace.clear(from);
+        objectSlots[to] = obj; objectSlots[from] = null;
+        obj.object = to;
+        obj.rangesChanged();
+        if (obj.wrappers != null && !obj.wrappers.isEmpty()) SEIWrapperBatches.indicesDirty = true;
+    }
+
+    /**
+     * Fills holes left by deleted objects by sliding the objects above them down, one object at a time.
+     * Objects keep their order, so drawing order is unchanged.
+     * Stops once {@link engine.SEEngine#SEcompactionBudget} microseconds have passed.
+     * Called by the engine once every frame, right before the flush.
+     */
+    protected static void compact() {
+        compactedObjects = 0;
+        if (SEEngine.SEcompactionBudget <= 0) return;
+        long deadline = System.nanoTime() + SEEngine.SEcompactionBudget * 1000L;
+        while (true) {
+            int hole = slots.next();
+            int live = objectSpace.nextSetBit(hole);
+            if (live == -1) break;
+            relocate(objectSlots[live], hole);
+            compactedObjects++;
+            if (System.nanoTime() >= deadline) break;
+        }
+        if (compactedObjects > 0) objectDrawSpace = objectSpace.length();
+    }
+
+    /**
+     * Moves the object space into a new buffer with room for capacity objects.
+     * Existing objects are copied on the GPU when the context supports it and re-uploaded from the object map otherwise.
+     * @param capacity The new maximum amount of objects. Must not be lower than {@link engine.SEObj#objectDrawSpace}.
+     */
+    private static void resize(int capacity) {
+        long startTime = System.nanoTime();
+        int oldCapacity = objectCapacity;
+        objectMap = memRealloc(objectMap, capacity * objectBytes);
+        if (dirtySpace.length() > capacity) dirtySpace.clear(capacity, dirtySpace.length());
+        objectSlots = Arrays.copyOf(objectSlots, capacity);
+        int newBuffer = glGenBuffers();
+        SEIState.bindArrayBuffer(newBuffer);
+        glBufferData(GL_ARRAY_BUFFER, (long)capacity * objectBytes, GL_DYNAMIC_DRAW);
+        GLCapabilities caps = GL.getCapabilities();
+        if (objectDrawSpace > 0 && (caps.OpenGL31 || caps.GL_ARB_copy_buffer)) {
+            glBindBuffer(GL_COPY_READ_BUFFER, mainBuffer);
+            glBindBuffer(GL_COPY_WRITE_BUFFER, newBuffer);
+            glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, 0, 0, (long)objectDrawSpace * objectBytes);
+            glBindBuffer(GL_COPY_READ_BUFFER, 0);
+            glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+        }
+        else if (objectDrawSpace > 0) upload(0, objectDrawSpace);
+        glDeleteBuffers(mainBuffer);
+        SEIState.forgetBuffer(mainBuffer);
+        mainBuffer = newBuffer;
+        objectCapacity = capacity;
+        genIndices(capacity);
+        lowUseFrames = 0;
+        SEIState.bindArrayBuffer(mainBuffer);
+        SEIShaders.createPointer();
+        String time = String.format("%.3f", (System.nanoTime() - startTime) / 1000000.0);
+        if (capacity > oldCapacity)
+            SEEngine.logWithDescription(SEMessageType.MSG_TYPE_OPT, SEMessage.MSG_OBJECT_SPACE_GROWN, "Object space grew from " + oldCapacity + " to " + capacity + " objects in " + time + "ms.");
+        else
+            SEEngine.logWithDescription(SEMessageType.MSG_TYPE_INFO, SEMessage.MSG_OBJECT_SPACE_SHRUNK, "Object space shrunk from " + oldCapacity + " to " + capacity + " objects in " + time + "ms.");
+    }
+
+    /**
+     * Fills {@link engine.SEObj#indexBuffer} with the triangle indices for capacity objects.
+     * @param capacity The amount of objects the indices should cover.
+     */
+    private static void genIndices(int capacity) {
+        IntBuffer indices = memAllocInt(capacity * 6);
+        for (int a = 0; a < capacity; a++) {
+            int vertex = a * OBJECTSIZE;
+            indices.put(vertex).put(vertex + 1).put(vertex + 2).put(vertex + 2).put(vertex + 3).put(vertex);
+        }
+        indices.flip();
+        SEIState.bindElementBuffer(indexBuffer);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        memFree(indices);
+    }
+
+    /**
+     * Halves the object space once it has stayed below a quarter of its capacity for a while.
+     * Never shrinks below the capacity the space was created with.
+     * Called by the engine once every frame.
+     */
+    protected static void checkShrink() {
+        if (!shrinkObjectSpace || objectCapacity / 2 < minObjectCapacity || objectDrawSpace > objectCapacity / 4) { lowUseFrames = 0; return; }
+        if (++lowUseFrames >= SHRINK_DELAY) resize(objectCapacity / 2);
     }
 
     /**
@@ -293,19 +774,32 @@ public class SEObj {
      * @param maxObjects New maximum amount of objects.
      */
     protected static void clearObjects(int maxObjects) {
-        objectSpace = new boolean[maxObjects];
-        objectMap = new float[maxObjects * OBJECTSIZE * OBJECTWIDTH];
-        glBindBuffer(GL_ARRAY_BUFFER, mainBuffer);
+        slots.clear();
+        hiddenSpace.clear();
+        rangesDirty = true;
+        objectCapacity = maxObjects; minObjectCapacity = maxObjects;
+        objectSlots = new SEObj[maxObjects];
+        memFree(objectMap);
+        layout();
+        objectMap = memCalloc(maxObjects * objectBytes);
+        dirtySpace.clear();
+        SEIState.bindArrayBuffer(mainBuffer);
         glBufferData(GL_ARRAY_BUFFER, objectMap, GL_DYNAMIC_DRAW);
-        objectDrawSpace = -1;
+        SEIShaders.createPointer();
+        genIndices(maxObjects);
+        objectDrawSpace = 0;
     }
 
     /**
      * Quickly resets the object space by invalidating the current space.
      */
     protected static void quickClearObjects() {
-        objectSpace = new boolean[objectSpace.length];
-        objectDrawSpace = -1;
+        slots.clear();
+        hiddenSpace.clear();
+        rangesDirty = true;
+        Arrays.fill(objectSlots, null);
+        dirtySpace.clear();
+        objectDrawSpace = 0;
     }
 
     /**
@@ -313,10 +807,17 @@ public class SEObj {
      * @param maxObjects Maximum amount of objects in the current space.
      */
     protected static void init(int maxObjects) {
-        objectSpace = new boolean[maxObjects];
-        objectMap = new float[maxObjects * OBJECTSIZE * OBJECTWIDTH];
+        slots.clear();
+        hiddenSpace.clear();
+        rangesDirty = true;
+        objectCapacity = maxObjects; minObjectCapacity = maxObjects;
+        objectSlots = new SEObj[maxObjects];
+        layout();
+        objectMap = memCalloc(maxObjects * objectBytes);
         mainBuffer = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, mainBuffer);
+        indexBuffer = glGenBuffers();
+        genIndices(maxObjects);
+        SEIState.bindArrayBuffer(mainBuffer);
         glBufferData(GL_ARRAY_BUFFER, objectMap, GL_DYNAMIC_DRAW);
         SEIShaders.createPointer();
     }
@@ -32,7 +32,11 @@ public class SEProgramData {
     public SEProgramData(SEProgramData copy) {
         windowWidth = copy.windowWidth; windowHeight = copy.windowHeight;
         programName = copy.programName; maxObjects = copy.maxObjects;
+        growObjectSpace = copy.growObjectSpace; shrinkObjectSpace = copy.shrinkObjectSpace;
+        usePackedVertices = copy.usePackedVertices; useInstancedObjects = copy.useInstancedObjects;
+        useDepthBuffer = copy.useDepthBuffer;
         texMemoryWidth = copy.texMemoryWidth; texMemoryHeight = copy.texMemoryHeight;
+        maxTexturePages = copy.maxTexturePages;
         compatibleVersions = copy.compatibleVersions; textureComponents = copy.textureComponents;
         isFullScreen = copy.isFullScreen;
         inheritData = copy.inheritData; useQuickClear = copy.useQuickClear;
@@ -59,23 +63,65 @@ public class SEProgramData {
 
     /**
      * Maximum amount of unique {@link engine.SEObj} that can exist at one time during the program's lifetime.
-     * A call to {@link engine.SEObj#SEObj(int, int, int, int, SETex)} with all objects created will fail.
+     * A call to {@link engine.SEObj#SEObj(int, int, int, int, SETex)} with all objects created will fail unless {@link engine.SEProgramData#growObjectSpace} is enabled.
      */
     public int maxObjects = 512;
+
+    /**
+     * If this value is true, the object space doubles in size when every object is in use instead of failing.
+     * Every growth is reported with a {@link engine.SEConstants.SEMessage#MSG_OBJECT_SPACE_GROWN} message.
+     */
+    public boolean growObjectSpace = true;
+
+    /**
+     * If this value is true, the object space halves in size after being mostly unused for a while.
+     * It never shrinks below {@link engine.SEProgramData#maxObjects}.
+     * Every shrink is reported with a {@link engine.SEConstants.SEMessage#MSG_OBJECT_SPACE_SHRUNK} message.
+     */
+    public boolean shrinkObjectSpace = false;
+
+    /**
+     * If this value is true, objects are stored with 16-bit positions and texture coordinates instead of floats.
+     * Halves the memory and upload size of every object, but positions must stay within -32768 and 32767 pixels.
+     */
+    public boolean usePackedVertices = false;
+
+    /**
+     * If this value is true, every object is stored as a single record (position, size and texture area) and expanded into a quad by the vertex shader.
+     * Cuts the upload size of every moved object by 2 (4 with {@link engine.SEProgramData#usePackedVertices}).
+     * Needs ARB_instanced_arrays and ARB_draw_instanced, otherwise objects are stored expanded as usual.
+     */
+    public boolean useInstancedObjects = false;
+
+    /**
+     * If this value is true, every object stores its {@link engine.SEObj#z} layer and the depth buffer decides which object is drawn on top.
+     * Objects no longer have to be created in drawing order, and {@link engine.SEObj#opaque} objects are drawn front to back to skip covered pixels.
+     * With {@link engine.SEEngine#SEuseWrappedObjects}, opaque objects are layered by the depth test and blended objects are drawn afterwards without writing depth.
+     * Blended wrapped objects are not sorted by layer: they are hidden behind higher opaque layers, but among each other the wrapper order (or wrapper depth) decides which is on top.
+     * Adds 4 bytes to every vertex (or instance record).
+     */
+    public boolean useDepthBuffer = false;
     
     /**
-    * Maximum Texture Memory Width.
-    * This major texture is used to store every single loaded {@link engine.SETex} object.
-    * A call to {@link engine.SETex#SETex(SERLogic.Data)} with no fitting space will fail.
+    * Texture Memory Page Width.
+    * Every loaded {@link engine.SETex} object is stored in a page of this size.
+    * A call to {@link engine.SETex#SETex(SERLogic.Data)} with no fitting space adds a page, up to {@link engine.SEProgramData#maxTexturePages}.
     */
     public int texMemoryWidth = 1024;
     /**
-     * Maximum Texture Memory Height.
-     * This major texture is used to store every single loaded {@link engine.SETex} object.
-     * A call to {@link engine.SETex#SETex(SERLogic.Data)} with no fitting space will fail.
+     * Texture Memory Page Height.
+     * Every loaded {@link engine.SETex} object is stored in a page of this size.
+     * A call to {@link engine.SETex#SETex(SERLogic.Data)} with no fitting space adds a page, up to {@link engine.SEProgramData#maxTexturePages}.
      */
     public int texMemoryHeight = 1024;
 
+    /**
+     * Maximum amount of texture memory pages.
+     * A call to {@link engine.SETex#SETex(SERLogic.Data)} with no fitting space in any page will fail once this many pages exist.
+     * Every added page is reported with a {@link engine.SEConstants.SEMessage#MSG_TEXTURE_PAGE_ADDED} message.
+     */
+    public int maxTexturePages = 4;
+
     /**
      * All compatible versions of SEEngine should be listed here separated by commas.
      * An "after:" prefix will allow every version after the version listed after the ":"
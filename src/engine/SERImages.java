@@ -18,11 +18,25 @@
 package engine;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
 import javax.imageio.ImageIO;
 
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
 import static engine.SERLogic.*;
 
+import static org.lwjgl.opengl.ARBTextureRG.*;
 import static org.lwjgl.opengl.GL11.*;
 
 import static engine.SEConstants.*;
@@ -65,65 +79,212 @@ public class SERImages {
      */
     protected static final int[] COMPONENT_REFERENCE = {
         GL_NONE,
-        GL_R,
+        GL_RED,
         GL_NONE,
         GL_RGB,
         GL_RGBA,
     };
 
+    /**
+     * Array of 8 bit OpenGL internal formats upon different values of {@link engine.SERImages#components}.
+     * Single component textures use GL_R8 instead when the context supports it.
+     */
+    protected static final int[] INTERNAL_FORMAT_REFERENCE = {
+        GL_NONE,
+        GL_LUMINANCE8,
+        GL_NONE,
+        GL_RGB8,
+        GL_RGBA8,
+    };
+
+    /**
+     * Returns the 8 bit OpenGL internal format to store textures with.
+     * @return The internal format for the current amount of {@link engine.SERImages#components}.
+     */
+    protected static int internalFormat() {
+        if (components == 1) {
+            GLCapabilities caps = GL.getCapabilities();
+            if (caps.OpenGL30 || caps.GL_ARB_texture_rg) return GL_R8;
+        }
+        return INTERNAL_FORMAT_REFERENCE[components];
+    }
+
+    /**
+     * Gets 8 bit image data from the file specified by path and returns a {@link engine.SERLogic.ByteData} object containing it.
+     * @param path The path to the image file containing the requested data.
+     * @return The gathered data as a {@link engine.SERLogic.ByteData} structure, with {@link engine.SERImages#components} bytes per pixel.
+     */
+    public static ByteData SEgetImageBytes(String path) {
+        ByteData data;
+        try { data = readImageBytes(path); }
+        catch (Exception ex) { SEEngine.log(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_TEXTURE_LOAD_ERROR); return null; }
+        if (data == null) SEEngine.logWithDescription(SEMessageType.MSG_TYPE_OPT_FUNC, SEMessage.MSG_MISSING_TEXTURE, "Texture " + path.replace("%20", " ") + " does not exist!");
+        return data;
+    }
+
+    /**
+     * Version of {@link engine.SERImages#SEgetImageBytes(String)} that does not log.
+     * Safe to call from any thread.
+     * @param path The path to the image file containing the requested data.
+     * @return The gathered data, or null if the file does not exist.
+     * @throws Exception If the file could not be read or decoded.
+     */
+    protected static ByteData readImageBytes(String path) throws Exception {
+        File apath = new File(path.replace("%20", " "));
+        if (!apath.exists() || !apath.isFile()) return null;
+        BufferedImage img = ImageIO.read(apath);
+        if (img == null) throw new IOException("Unknown image format");
+        ByteBuffer glTexture = BufferUtils.createByteBuffer(img.getWidth() * img.getHeight() * components);
+        decode(img, glTexture);
+        return new ByteData(glTexture, img.getWidth(), img.getHeight());
+    }
+
+    /**
+     * Images with at least this many pixels are converted in parallel row bands.
+     */
+    public static int SEparallelDecodePixels = 256 * 256;
+
+    private static final int BAND_ROWS = 32;
+
+    private static boolean isPlain(Raster raster, int pixelStride) {
+        if (raster.getParent() != null || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) return false;
+        if (raster.getDataBuffer().getNumBanks() != 1 || raster.getDataBuffer().getOffset() != 0) return false;
+        SampleModel model = raster.getSampleModel();
+        if (model instanceof SinglePixelPackedSampleModel) return ((SinglePixelPackedSampleModel)model).getScanlineStride() == raster.getWidth();
+        if (model instanceof ComponentSampleModel) {
+            ComponentSampleModel components = (ComponentSampleModel)model;
+            return components.getPixelStride() == pixelStride && components.getScanlineStride() == raster.getWidth() * pixelStride;
+        }
+        return false;
+    }
+
+    private static void pixel(ByteBuffer out, int index, int argb) {
+        switch (components) {
+            case 4:
+                out.put(index + 3, (byte)(argb >>> 24));
+            case 3:
+                out.put(index + 2, (byte)argb);
+                out.put(index + 1, (byte)(argb >> 8));
+            case 1:
+                out.put(index, (byte)(argb >> 16));
+            default: break;
+        }
+    }
+
+    private static void decodeRows(BufferedImage img, ByteBuffer out, int fromY, int toY) {
+        int width = img.getWidth();
+        Raster raster = img.getRaster();
+        switch (img.getType()) {
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_RGB:
+                if (!isPlain(raster, 1)) break;
+                int[] ints = ((DataBufferInt)raster.getDataBuffer()).getData();
+                int opaque = img.getType() == BufferedImage.TYPE_INT_RGB ? 0xff000000 : 0;
+                for (int a = fromY * width; a < toY * width; a++) pixel(out, a * components, ints[a] | opaque);
+                return;
+            case BufferedImage.TYPE_4BYTE_ABGR:
+                if (!isPlain(raster, 4)) break;
+                byte[] abgr = ((DataBufferByte)raster.getDataBuffer()).getData();
+                for (int a = fromY * width; a < toY * width; a++)
+                    pixel(out, a * components, (abgr[a * 4] & 0xff) << 24 | (abgr[a * 4 + 3] & 0xff) << 16 | (abgr[a * 4 + 2] & 0xff) << 8 | (abgr[a * 4 + 1] & 0xff));
+                return;
+            case BufferedImage.TYPE_3BYTE_BGR:
+                if (!isPlain(raster, 3)) break;
+                byte[] bgr = ((DataBufferByte)raster.getDataBuffer()).getData();
+                for (int a = fromY * width; a < toY * width; a++)
+                    pixel(out, a * components, 0xff000000 | (bgr[a * 3 + 2] & 0xff) << 16 | (bgr[a * 3 + 1] & 0xff) << 8 | (bgr[a * 3] & 0xff));
+                return;
+            default: break;
+        }
+        int[] row = new int[width];
+        for (int y = fromY; y < toY; y++) {
+            img.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) pixel(out, (x + y * width) * components, row[x]);
+        }
+    }
+
+    /**
+     * Converts a whole image into {@link engine.SERImages#components} bytes per pixel, reading from top left to the right and then downwards.
+     * Common int and byte rasters are read directly, everything else goes through {@link java.awt.image.BufferedImage#getRGB(int, int, int, int, int[], int, int)} one row at a time.
+     * @param img The image to convert.
+     * @param out The buffer to write to, at least width * height * components bytes long.
+     */
+    protected static void decode(BufferedImage img, ByteBuffer out) {
+        int height = img.getHeight();
+        if ((long)img.getWidth() * height < SEparallelDecodePixels || height <= BAND_ROWS) { decodeRows(img, out, 0, height); return; }
+        IntStream.range(0, (height + BAND_ROWS - 1) / BAND_ROWS).parallel()
+                .forEach(band -> decodeRows(img, out, band * BAND_ROWS, Math.min(height, (band + 1) * BAND_ROWS)));
+    }
+
     /**
      * Gets image data from the file specified by path and returns a {@link engine.SERLogic.Data} object containing it.
+     * Prefer {@link engine.SERImages#SEgetImageBytes(String)}, which does not expand the image into floats.
      * @param path The path to the image file containing the requested data.
      * @return The gathered data as a {@link engine.SERLogic.Data} structure.
      */
-    public static Data SEgetImageData(String path) {
-        path = path.replace("%20", " ");
-        BufferedImage img;
-        float[] glTexture = null;
-        int width = 0, height = 0;
-        File apath = new File(path);
-        if (apath.exists() && apath.isFile()) {
-            try {
-                img = ImageIO.read(apath);
-                width = img.getWidth(); height = img.getHeight();
-                glTexture = new float[width * height * components];
-                for (int x = 0; x < width; x++) {
-                    for (int y = 0; y < height; y++) {
-                        int col = img.getRGB(x, y);
-                        switch (components) {
-                            case 4:
-                                glTexture[(x + y * width) * components + 3] = (float)((col & 0xff000000) >>> 24)/255.0f;
-                            case 3:
-                                glTexture[(x + y * width) * components + 2] = (float)(col & 0xff)/255.0f;
-                                glTexture[(x + y * width) * components + 1] = (float)((col & 0xff00) >> 8)/255.0f;
-                            case 1:
-                                glTexture[(x + y * width) * components] = (float)((col & 0xff0000) >> 16)/255.0f;
-                            default: break;
-                        }
-                    }
-                }
-            } catch (Exception ex) {}
-        } else { SEEngine.logWithDescription(SEMessageType.MSG_TYPE_OPT_FUNC, SEMessage.MSG_MISSING_TEXTURE, "Texture " + path + " does not exist!"); return null; }
-        if (glTexture == null) { SEEngine.log(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_TEXTURE_LOAD_ERROR); return null; }
-        return new Data(glTexture, width, height);
+    public static Data SEgetImageData(String path) { return toData(SEgetImageBytes(path)); }
+
+    /**
+     * Converts float image data (components from 0 to 1) into 8 bit image data.
+     * @param data The data to convert.
+     * @return The converted data, or null if data is null.
+     */
+    public static ByteData toBytes(Data data) {
+        if (data == null) return null;
+        ByteBuffer bytes = BufferUtils.createByteBuffer(data.data.length);
+        for (int a = 0; a < data.data.length; a++)
+            bytes.put(a, (byte)Math.round(Math.min(Math.max(data.data[a], 0), 1) * 255));
+        return new ByteData(bytes, data.width, data.height);
     }
 
     /**
-     * Loads data into the OpenGL texture.
+     * Converts 8 bit image data into float image data (components from 0 to 1).
+     * @param data The data to convert.
+     * @return The converted data, or null if data is null.
+     */
+    public static Data toData(ByteData data) {
+        if (data == null) return null;
+        float[] floats = new float[data.data.capacity()];
+        for (int a = 0; a < floats.length; a++) floats[a] = (float)(data.data.get(a) & 0xff) / 255.0f;
+        return new Data(floats, data.width, data.height);
+    }
+
+    /**
+     * Loads 8 bit data into the OpenGL texture.
      * @param data The data to load into texture.
      * @param texture The OpenGL texture to add data to.
      */
-    public static void loadTexture(Data data, int texture) {
+    public static void loadTexture(ByteData data, int texture) {
         if (data == null) { SEEngine.log(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_TEXTURE_LOAD_ERROR); return; }
-        glBindTexture(GL_TEXTURE_2D, texture);
-        glTexImage2D(GL_TEXTURE_2D, 0, COMPONENT_REFERENCE[components], data.width, data.height, 0, COMPONENT_REFERENCE[components], GL_FLOAT, data.data);
-        setupTexture();
+        allocateTexture(data.width, data.height, texture);
+        SEIPixelUploads.texSubImage(texture, 0, 0, data.width, data.height, data.data);
     }
 
     /**
-     * String version of {@link engine.SERImages#loadTexture(engine.SERLogic.Data, int)}.
+     * Loads data into the OpenGL texture.
+     * The data is stored as 8 bit components.
+     * @param data The data to load into texture.
+     * @param texture The OpenGL texture to add data to.
+     */
+    public static void loadTexture(Data data, int texture) { loadTexture(toBytes(data), texture); }
+
+    /**
+     * String version of {@link engine.SERImages#loadTexture(engine.SERLogic.ByteData, int)}.
      * @param texturePath Path to an image file containing the texture data to load into texture.
      * @param texture The OpenGL texture to add data to.
      */
-    public static void loadTexture(String texturePath, int texture) { loadTexture(SEgetImageData(texturePath), texture); }
+    public static void loadTexture(String texturePath, int texture) { loadTexture(SEgetImageBytes(texturePath), texture); }
+
+    /**
+     * Allocates storage for the OpenGL texture without uploading any data.
+     * The contents of the texture are undefined until they are written.
+     * @param width The width of the texture.
+     * @param height The height of the texture.
+     * @param texture The OpenGL texture to allocate.
+     */
+    protected static void allocateTexture(int width, int height, int texture) {
+        SEIState.bindTexture(texture);
+        glTexImage2D(GL_TEXTURE_2D, 0, internalFormat(), width, height, 0, COMPONENT_REFERENCE[components], GL_UNSIGNED_BYTE, (ByteBuffer)null);
+        setupTexture();
+    }
 }
@@ -17,6 +17,7 @@
  */
 package engine;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 
 import static engine.SEConstants.*;
@@ -70,6 +71,40 @@ public class SERLogic {
         
         @Override public boolean equals(Object a) { Data ar = (Data)a;  return width == ar.width && height == ar.height && Arrays.equals(data, ar.data); }
     }
+
+    /**
+     * Stores a direct buffer of bytes along with a width and height for 2D storage.
+     * Used for 8 bit image data.
+     */
+    public static class ByteData {
+
+        /**
+         * The core data of the object.
+         */
+        public ByteBuffer data;
+
+        /**
+         * The width of the data object.
+         */
+        public int width;
+
+        /**
+         * The height of the data object.
+         */
+        public int height;
+
+        /**
+         * Creates a new ByteData object with a specified data buffer, width and height.
+         * @param dat The core data of the newly created object.
+         * @param w The width of the newly created object.
+         * @param h The height of the newly created object.
+         */
+        public ByteData(ByteBuffer dat, int w, int h) { data = dat; width = w; height = h; }
+        /**
+         * Blank initializer for ByteData.
+         */
+        public ByteData(){}
+    }
     
     /**
      * Keeps track of small periods of time since creation.
@@ -148,12 +183,8 @@ public class SERLogic {
         mat.data = new float[mat.width * mat.height];
         for (int x = 0; x < mat.width; x++) {
             for (int y = 0; y < mat.height; y++) {
-                float[] rowa = new float[mata.width];
-                float[] colb = new float[matb.height];
-                for (int a = 0; a < mata.width; a++) rowa[a] = mata.data[a + y * mata.width];
-                for (int a = 0; a < matb.height; a++) colb[a] = matb.data[x + a * matb.width];
                 float finalValue = 0;
-                for (int a = 0; a < rowa.length; a++) finalValue += rowa[a] * colb[a];
+                for (int a = 0; a < mata.width; a++) finalValue += mata.data[a + y * mata.width] * matb.data[x + a * matb.width];
                 mat.data[x + y * mat.width] = finalValue;
             }
         }
@@ -17,10 +17,37 @@
  */
 package engine;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
 import engine.SERLogic.*;
 
 import static engine.SEConstants.*;
+import static org.lwjgl.opengl.EXTFramebufferObject.*;
 import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL30.*;
 
 /**
  * Stores information about a texture in memory.
@@ -35,8 +62,10 @@ public class SETex {
     private SETex() {}
 
     private static int width, height;
-    private static int mainTex;
-    private static boolean[] texSpace;
+    private static int maxPages;
+    private static int[] pageTextures = new int[0];
+    private static final ArrayList<SEIPacker> packers = new ArrayList<>();
+    private static final ArrayList<Set<SETex>> pageOwners = new ArrayList<>();
 
     private static int gpuMaxTextureSize;
 
@@ -58,11 +87,46 @@ public class SETex {
      */
     protected double texH = 0;
 
+    /**
+     * The area of the main texture owned by this texture, or null if it owns none (samples and deleted textures).
+     */
+    protected SEIPacker.Rect area = null;
+
+    /**
+     * The texture memory page this texture is stored in.
+     */
+    protected int page = 0;
+
+    /**
+     * The texture this texture was sampled from, or null if it is not a sample.
+     */
+    protected SETex parent = null;
+    private int sampleX = 0, sampleY = 0;
+
+    /**
+     * The texture shown in place of this one until it has loaded, or null if it is not waiting for {@link engine.SETex#loadAsync(String)}.
+     */
+    private SETex placeholder = null;
+
+    /**
+     * The key of this texture in the texture cache, or null if it is not cached.
+     */
+    protected String cacheKey = null;
+    /**
+     * The amount of {@link engine.SETex#SEcached(String)} style lookups not yet released with {@link engine.SETex#release()}.
+     */
+    protected int references = 0;
+
+    /**
+     * True while the texture is being loaded by {@link engine.SETex#loadAsync(String)}.
+     */
+    protected volatile boolean loading = false;
+
     public static final SETex BLANK_TEXTURE = new SETex();
 
     @Override public boolean equals(Object a) {
         SETex ar = (SETex)a;
-        return texX == ar.texX && texY == ar.texY && texW == ar.texW && texH == ar.texH;
+        return page == ar.page && texX == ar.texX && texY == ar.texY && texW == ar.texW && texH == ar.texH;
     }
 
     private static float[] formatColors(float red, float green, float blue, float alpha) {
@@ -74,45 +138,231 @@ public class SETex {
     }
 
     /**
-     * {@link engine.SERLogic.Data} constructor.
+     * {@link engine.SERLogic.ByteData} constructor.
      * @param tex The data to be loaded into the texture.
-     *            The format should be a repeating pattern of {@link engine.SERImages#components} floats, all representing their corresponding component from 0 to 1.
+     *            The format should be a repeating pattern of {@link engine.SERImages#components} bytes, all representing their corresponding component from 0 to 255.
      *            There should be width * height of these patterns, each pattern representing one pixel, reading from top left to the right and then downwards.
      */
-    public SETex(Data tex) {
+    public SETex(ByteData tex) { load(tex); }
+
+    private void load(ByteData tex) {
         if (tex == null) { SEEngine.log(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_NULL_TEXTURE); return; }
-        if (tex.width > gpuMaxTextureSize || tex.height > gpuMaxTextureSize) { SEEngine.log(SEMessageType.MSG_TYPE_OPENGL, SEMessage.MSG_INCOMPATIBLE_CONTEXT); return; } //This is odd logic.
-        if (tex.width > width || tex.height > height) { SEEngine.log(SEMessageType.MSG_TYPE_OPT, SEMessage.MSG_OUT_OF_TEXTURE_MEMORY); return; }
-        boolean found = false;
-        int findX = 0, findY = 0;
-        for (int scanX = 0; scanX < width - tex.width + 1; scanX++) {
-            for (int scanY = 0; scanY < height - tex.height + 1; scanY++) {
-                boolean isFound = false;
-                for (int scanPX = 0; scanPX < tex.width; scanPX++) {
-                    for (int scanPY = 0; scanPY < tex.height; scanPY++) {
-                        if (texSpace[(scanX + scanPX) + (scanY + scanPY) * width]) { isFound = true; break; }
-                    }
-                    if (isFound) break;
+        SEIPacker.Rect found = allocate(tex.width, tex.height, true);
+        if (found == null) return;
+        claim(allocatedPage, found);
+        SEIPixelUploads.texSubImage(pageTextures[page], area.x, area.y, area.w, area.h, tex.data);
+    }
+
+    private void claim(int Page, SEIPacker.Rect Area) {
+        page = Page; area = Area;
+        placeholder = null;
+        pageOwners.get(page).add(this);
+        texX = (double)area.x / width; texY = (double)area.y / height;
+        texW = (double)area.w / width; texH = (double)area.h / height;
+    }
+
+    private static int allocatedPage = 0;
+
+    /**
+     * Finds room for a w by h area in texture memory and marks it as used.
+     * Tries every page, then evicts unused cached textures, then repacks pages and finally adds a page.
+     * @param log If true, failing is logged.
+     * @return The area, with its page in {@link engine.SETex#allocatedPage}, or null if there is no room.
+     */
+    private static SEIPacker.Rect allocate(int w, int h, boolean log) {
+        if (w > gpuMaxTextureSize || h > gpuMaxTextureSize) { if (log) SEEngine.log(SEMessageType.MSG_TYPE_OPENGL, SEMessage.MSG_INCOMPATIBLE_CONTEXT); return null; } //This is odd logic.
+        if (w > width || h > height) { if (log) SEEngine.log(SEMessageType.MSG_TYPE_OPT, SEMessage.MSG_OUT_OF_TEXTURE_MEMORY); return null; }
+        SEIPacker.Rect found = null;
+        for (int a = 0; a < packers.size() && found == null; a++) { found = packers.get(a).insert(w, h); allocatedPage = a; }
+        while (found == null) {
+            int evicted = SEITextureCache.evict((long)w * h);
+            if (evicted == -1) break;
+            found = packers.get(evicted).insert(w, h); allocatedPage = evicted;
+        }
+        for (int a = 0; a < packers.size() && found == null && SEEngine.SErepackFullTexturePages; a++) {
+            SEIPacker packer = packers.get(a);
+            if (packer.getWidth() * packer.getHeight() - packer.getUsedArea() < w * h || !repackPage(a)) continue;
+            found = packers.get(a).insert(w, h); allocatedPage = a;
+        }
+        if (found == null && packers.size() < maxPages) {
+            addPage();
+            SEEngine.logWithDescription(SEMessageType.MSG_TYPE_OPT, SEMessage.MSG_TEXTURE_PAGE_ADDED, "Texture memory page " + packers.size() + " of " + maxPages + " was added.");
+            allocatedPage = packers.size() - 1;
+            found = packers.get(allocatedPage).insert(w, h);
+        }
+        if (found == null && log) SEEngine.log(SEMessageType.MSG_TYPE_OPT, SEMessage.MSG_OUT_OF_TEXTURE_MEMORY);
+        return found;
+    }
+
+    /**
+     * Loads many image files at once.
+     * The files are decoded in parallel, then packed together largest first into one block of texture memory,
+     * which is uploaded in a single call. Files that do not fit in the block are loaded one by one.
+     * @param paths The paths to image files which contain the texture data.
+     * @return Every path mapped to its texture, in the order given. Textures that failed to load are empty, like with {@link engine.SETex#SETex(String)}.
+     */
+    public static Map<String, SETex> loadAll(Collection<String> paths) {
+        String[] names = new LinkedHashSet<>(paths).toArray(new String[0]);
+        ByteData[] data = new ByteData[names.length];
+        boolean[] failed = new boolean[names.length];
+        IntStream.range(0, names.length).parallel().forEach(a -> {
+            try { data[a] = SERImages.readImageBytes(names[a]); } catch (Exception ex) { failed[a] = true; }
+        });
+
+        Integer[] order = IntStream.range(0, names.length).filter(a -> data[a] != null).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, (a, b) -> data[a].height != data[b].height ? data[b].height - data[a].height : data[b].width * data[b].height - data[a].width * data[a].height);
+        SEIPacker local = new SEIPacker(width, height);
+        SEIPacker.Rect[] localAreas = new SEIPacker.Rect[names.length];
+        int blockW = 0, blockH = 0;
+        for (int a : order) {
+            localAreas[a] = local.insert(data[a].width, data[a].height);
+            if (localAreas[a] == null) continue;
+            blockW = Math.max(blockW, localAreas[a].x + localAreas[a].w);
+            blockH = Math.max(blockH, localAreas[a].y + localAreas[a].h);
+        }
+
+        SETex[] textures = new SETex[names.length];
+        for (int a = 0; a < names.length; a++) textures[a] = new SETex();
+        SEIPacker.Rect block = blockW > 0 ? allocate(blockW, blockH, false) : null;
+        if (block != null) {
+            int blockPage = allocatedPage;
+            ArrayList<SEIPacker.Rect> parts = new ArrayList<>();
+            int components = SERImages.components;
+            ByteBuffer pixels = BufferUtils.createByteBuffer(blockW * blockH * components);
+            for (int a : order) {
+                SEIPacker.Rect at = localAreas[a];
+                if (at == null) continue;
+                SEIPacker.Rect placed = new SEIPacker.Rect(block.x + at.x, block.y + at.y, at.w, at.h);
+                parts.add(placed);
+                textures[a].claim(blockPage, placed);
+                ByteBuffer src = data[a].data.duplicate();
+                for (int y = 0; y < at.h; y++) {
+                    src.limit((y + 1) * at.w * components); src.position(y * at.w * components);
+                    pixels.position(((at.y + y) * blockW + at.x) * components);
+                    pixels.put(src);
+                }
+                data[a] = null;
+            }
+            packers.get(blockPage).divide(block, parts);
+            pixels.clear();
+            SEIPixelUploads.texSubImage(pageTextures[blockPage], block.x, block.y, blockW, blockH, pixels);
+        }
+
+        Map<String, SETex> loaded = new LinkedHashMap<>();
+        for (int a = 0; a < names.length; a++) {
+            if (data[a] != null) textures[a].load(data[a]);
+            else if (failed[a]) SEEngine.log(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_TEXTURE_LOAD_ERROR);
+            else if (textures[a].area == null) SEEngine.logWithDescription(SEMessageType.MSG_TYPE_OPT_FUNC, SEMessage.MSG_MISSING_TEXTURE, "Texture " + names[a].replace("%20", " ") + " does not exist!");
+            loaded.put(names[a], textures[a]);
+        }
+        return loaded;
+    }
+
+    /**
+     * Loads an atlas file written by {@link engine.SEAtlasCompiler}.
+     * The file is memory mapped and every atlas page is uploaded straight from it in one call, without decoding or packing.
+     * @param path The path to the atlas file.
+     * @return Every name in the atlas mapped to its texture, or an empty map if the file could not be loaded. Textures whose page did not fit are empty.
+     */
+    public static Map<String, SETex> loadAtlas(String path) {
+        Map<String, SETex> loaded = new LinkedHashMap<>();
+        File file = new File(path.replace("%20", " "));
+        if (!file.isFile()) { SEEngine.logWithDescription(SEMessageType.MSG_TYPE_OPT_FUNC, SEMessage.MSG_MISSING_TEXTURE, "Texture atlas " + file.getPath() + " does not exist!"); return loaded; }
+        MappedByteBuffer map;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                SEEngine.logWithDescription(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_TEXTURE_LOAD_ERROR, file.getPath() + " is larger than 2GB."); return loaded; }
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        catch (IOException | IllegalArgumentException ex) { SEEngine.log(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_TEXTURE_LOAD_ERROR); return loaded; }
+        int pageCount, entryCount;
+        int[] pageW, pageH, entryPage;
+        long[] pageOffset;
+        String[] names;
+        SEIPacker.Rect[] areas;
+        try {
+            if (map.getInt() != SEAtlasCompiler.ATLAS_MAGIC || map.getInt() != SEAtlasCompiler.ATLAS_VERSION) {
+                SEEngine.logWithDescription(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_TEXTURE_LOAD_ERROR, file.getPath() + " is not a texture atlas of version " + SEAtlasCompiler.ATLAS_VERSION + "."); return loaded; }
+            if (map.getInt() != SERImages.components) {
+                SEEngine.logWithDescription(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_TEXTURE_LOAD_ERROR, file.getPath() + " was compiled for another amount of texture components."); return loaded; }
+            pageCount = map.getInt(); entryCount = map.getInt();
+            if (pageCount > map.remaining() || entryCount > map.remaining()) throw new BufferUnderflowException();
+            pageW = new int[pageCount]; pageH = new int[pageCount];
+            pageOffset = new long[pageCount];
+            for (int p = 0; p < pageCount; p++) { pageW[p] = map.getInt(); pageH[p] = map.getInt(); pageOffset[p] = map.getLong(); }
+            names = new String[entryCount];
+            entryPage = new int[entryCount];
+            areas = new SEIPacker.Rect[entryCount];
+            for (int a = 0; a < entryCount; a++) {
+                int nameLength = map.getInt();
+                if (nameLength > map.remaining()) throw new BufferUnderflowException();
+                byte[] name = new byte[nameLength];
+                map.get(name);
+                names[a] = new String(name, StandardCharsets.UTF_8);
+                entryPage[a] = map.getInt();
+                areas[a] = new SEIPacker.Rect(map.getInt(), map.getInt(), map.getInt(), map.getInt());
+            }
+        } catch (BufferUnderflowException | NegativeArraySizeException ex) {
+            SEEngine.logWithDescription(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_TEXTURE_LOAD_ERROR, file.getPath() + " is damaged."); return loaded;
+        }
+
+        // Everything is checked before the first page is allocated, so a damaged file never touches the packers.
+        boolean valid = true;
+        for (int p = 0; p < pageCount && valid; p++) {
+            valid = pageW[p] >= 0 && pageH[p] >= 0 && pageOffset[p] >= 0 &&
+                    pageOffset[p] + (long)pageW[p] * pageH[p] * SERImages.components <= map.capacity();
+        }
+        for (int a = 0; a < entryCount && valid; a++) {
+            SEIPacker.Rect area = areas[a];
+            valid = entryPage[a] >= 0 && entryPage[a] < pageCount && area.x >= 0 && area.y >= 0 && area.w > 0 && area.h > 0 &&
+                    (long)area.x + area.w <= pageW[entryPage[a]] && (long)area.y + area.h <= pageH[entryPage[a]];
+        }
+        if (!valid) { SEEngine.logWithDescription(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_TEXTURE_LOAD_ERROR, file.getPath() + " is damaged."); return loaded; }
+
+        SETex[] textures = new SETex[entryCount];
+        for (int a = 0; a < entryCount; a++) textures[a] = new SETex();
+        try {
+            for (int p = 0; p < pageCount; p++) {
+                if (pageW[p] == 0 || pageH[p] == 0) continue;
+                SEIPacker.Rect block = allocate(pageW[p], pageH[p], true);
+                if (block == null) continue;
+                int blockPage = allocatedPage;
+                ArrayList<SEIPacker.Rect> parts = new ArrayList<>();
+                for (int a = 0; a < entryCount; a++) {
+                    if (entryPage[a] != p) continue;
+                    SEIPacker.Rect placed = new SEIPacker.Rect(block.x + areas[a].x, block.y + areas[a].y, areas[a].w, areas[a].h);
+                    parts.add(placed);
+                    textures[a].claim(blockPage, placed);
                 }
-                if (!isFound) { found = true; findX = scanX; findY = scanY; break; }
+                packers.get(blockPage).divide(block, parts);
+                ByteBuffer pixels = map.duplicate();
+                pixels.limit((int)(pageOffset[p] + (long)pageW[p] * pageH[p] * SERImages.components));
+                pixels.position((int)pageOffset[p]);
+                SEIPixelUploads.texSubImage(pageTextures[blockPage], block.x, block.y, pageW[p], pageH[p], pixels);
             }
-            if (found) break;
+        } catch (RuntimeException ex) {
+            deleteAll(Arrays.asList(textures));
+            SEEngine.logWithDescription(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_TEXTURE_LOAD_ERROR, file.getPath() + " could not be loaded: " + ex);
+            return loaded;
         }
-        if (!found) { SEEngine.log(SEMessageType.MSG_TYPE_OPT, SEMessage.MSG_OUT_OF_TEXTURE_MEMORY); return; }
-        for (int x = 0; x < tex.width; x++)
-            for (int y = 0; y < tex.height; y++)
-                texSpace[(x + findX) + (y + findY) * width] = true;
-        glBindTexture(GL_TEXTURE_2D, mainTex);
-        glTexSubImage2D(GL_TEXTURE_2D, 0, findX, findY, tex.width, tex.height, SERImages.COMPONENT_REFERENCE[SERImages.components], GL_FLOAT, tex.data);
-        texX = (float)findX / (float)width; texY = (float)findY / (float)height;
-        texW = (float)tex.width / (float)width; texH = (float)tex.height / (float)height;
+        for (int a = 0; a < entryCount; a++) loaded.put(names[a], textures[a]);
+        return loaded;
     }
 
+    /**
+     * {@link engine.SERLogic.Data} constructor.
+     * The data is converted to 8 bit components before it is loaded.
+     * @param tex The data to be loaded into the texture.
+     *            The format should be a repeating pattern of {@link engine.SERImages#components} floats, all representing their corresponding component from 0 to 1.
+     *            There should be width * height of these patterns, each pattern representing one pixel, reading from top left to the right and then downwards.
+     */
+    public SETex(Data tex) { this(SERImages.toBytes(tex)); }
+
     /**
      * Image file constructor.
      * @param path The path to an image file which contains the texture data.
      */
-    public SETex(String path) { this(SERImages.SEgetImageData(path)); }
+    public SETex(String path) { this(SERImages.SEgetImageBytes(path)); }
 
     /**
      * Solid colour constructor.
@@ -135,15 +385,18 @@ public class SETex {
 
     /**
      * Samples a section of a larger texture.
-     * Texture boundaries are ignored.
+     * Texture boundaries are ignored, but the sample stays on this texture's page.
      * @param offX The x coordinate in pixels of the main texture to sample.
      * @param offY The y coordinate in pixels of the main texture to sample.
      * @param w The width of the sampled texture.
      * @param h The height of the sampled texture.
-     * @return A sampled texture from mainTex.
+     * @return A sampled texture from this texture's page.
      */
     public SETex sample(int offX, int offY, int w, int h) {
         SETex tex = new SETex();
+        tex.page = page;
+        tex.parent = parent == null ? this : parent;
+        tex.sampleX = sampleX + offX; tex.sampleY = sampleY + offY;
         tex.texX = (texX * width + offX) / width;
         tex.texY = (texY * height + offY) / height;
         tex.texW = (double)w / (double)width;
@@ -151,51 +404,355 @@ public class SETex {
         return tex;
     }
 
+    /**
+     * Moves a sample to where its parent currently is, in case the parent was moved by a repack or finished loading.
+     * A texture still waiting for {@link engine.SETex#loadAsync(String)} moves to where its placeholder currently is.
+     */
+    protected void follow() {
+        if (placeholder != null) {
+            placeholder.follow();
+            page = placeholder.page;
+            texX = placeholder.texX; texY = placeholder.texY;
+            texW = placeholder.texW; texH = placeholder.texH;
+            return;
+        }
+        if (parent == null) return;
+        parent.follow();
+        page = parent.page;
+        texX = parent.texX + (double)sampleX / width;
+        texY = parent.texY + (double)sampleY / height;
+    }
+
     /**
      * Deletes and frees up the space allocated by the texture.
      */
     public void delete() {
-        for (int x = 0; x < texW * width; x++) {
-            for (int y = 0; y < texH * height; y++) {
-                texSpace[(int)(x + texX * width) + (int)(y + texY * height) * width] = false;
+        loading = false;
+        placeholder = null;
+        SEITextureCache.remove(this);
+        if (area == null) return;
+        packers.get(page).free(area);
+        pageOwners.get(page).remove(this);
+        area = null;
+    }
+
+    /**
+     * Deletes many textures at once, freeing their space with one call per texture page.
+     * @param textures The textures to delete.
+     */
+    protected static void deleteAll(Collection<SETex> textures) {
+        ArrayList<ArrayList<SEIPacker.Rect>> freed = new ArrayList<>();
+        for (int a = 0; a < packers.size(); a++) freed.add(new ArrayList<>());
+        for (SETex tex : textures) {
+            tex.loading = false;
+            tex.placeholder = null;
+            SEITextureCache.remove(tex);
+            if (tex.area == null) continue;
+            freed.get(tex.page).add(tex.area);
+            pageOwners.get(tex.page).remove(tex);
+            tex.area = null;
+        }
+        for (int a = 0; a < packers.size(); a++) {
+            if (!freed.get(a).isEmpty()) packers.get(a).free(freed.get(a));
+        }
+    }
+
+    /**
+     * The texture shown by objects using a texture from {@link engine.SETex#loadAsync(String)} until it has loaded.
+     * Defaults to {@link engine.SETex#BLANK_TEXTURE}.
+     */
+    public static SETex SEloadingPlaceholder = BLANK_TEXTURE;
+
+    private static ExecutorService loader = null;
+    private static final ArrayList<SETex> pendingTextures = new ArrayList<>();
+    private static final ArrayList<ByteData> pendingData = new ArrayList<>();
+    private static final Set<SETex> finishedTextures = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Loads an image file in the background and returns right away.
+     * The file is decoded on a worker thread. Placing and uploading it happens on the engine thread,
+     * limited to {@link engine.SEEngine#SEtextureUploadBudget} bytes every frame.
+     * Until then the texture looks like {@link engine.SETex#SEloadingPlaceholder}, wherever a repack moves it. Objects using it are saved again once it has loaded.
+     * @param path The path to an image file which contains the texture data.
+     * @return A texture that will contain the image once it has loaded.
+     */
+    public static SETex loadAsync(String path) {
+        SETex tex = new SETex();
+        tex.placeholder = SEloadingPlaceholder == null ? BLANK_TEXTURE : SEloadingPlaceholder;
+        tex.follow();
+        tex.loading = true;
+        if (loader == null) {
+            loader = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), runnable -> {
+                Thread thread = new Thread(runnable, "SETex loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        loader.execute(() -> {
+            ByteData data = null;
+            boolean failed = false;
+            try { data = SERImages.readImageBytes(path); } catch (Exception ex) { failed = true; }
+            final ByteData result = data;
+            final boolean missing = !failed && data == null;
+            SEEngine.SEaddQue(() -> {
+                if (result != null) { pendingTextures.add(tex); pendingData.add(result); return; }
+                tex.loading = false;
+                if (missing) SEEngine.logWithDescription(SEMessageType.MSG_TYPE_OPT_FUNC, SEMessage.MSG_MISSING_TEXTURE, "Texture " + path.replace("%20", " ") + " does not exist!");
+                else SEEngine.log(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_TEXTURE_LOAD_ERROR);
+            });
+        });
+        return tex;
+    }
+
+    /**
+     * Tells if the texture has finished loading.
+     * @return False while a texture from {@link engine.SETex#loadAsync(String)} is still loading, true otherwise.
+     */
+    public boolean isLoaded() { return !loading; }
+
+    /**
+     * Places and uploads textures decoded by {@link engine.SETex#loadAsync(String)}.
+     * At least one texture is uploaded every call, then more until {@link engine.SEEngine#SEtextureUploadBudget} bytes were uploaded.
+     * Called by the engine every frame.
+     */
+    protected static void uploadPending() {
+        int uploaded = 0, done = 0;
+        finishedTextures.clear();
+        while (done < pendingTextures.size() && (done == 0 || SEEngine.SEtextureUploadBudget <= 0 || uploaded < SEEngine.SEtextureUploadBudget)) {
+            SETex tex = pendingTextures.get(done);
+            ByteData data = pendingData.get(done);
+            done++;
+            if (!tex.loading) continue;
+            tex.load(data);
+            tex.loading = false;
+            uploaded += data.data.capacity();
+            finishedTextures.add(tex);
+        }
+        pendingTextures.subList(0, done).clear();
+        pendingData.subList(0, done).clear();
+        SEObj.saveTextures(finishedTextures);
+        finishedTextures.clear();
+    }
+
+    /**
+     * Cached version of {@link engine.SETex#SETex(String)}.
+     * The file is only loaded the first time it is asked for, or again once it has been modified.
+     * Every call adds a reference that should be given back with {@link engine.SETex#release()}.
+     * @param path The path to an image file which contains the texture data.
+     * @return A texture shared with every other call for the same file.
+     */
+    public static SETex SEcached(String path) {
+        File file = new File(path.replace("%20", " "));
+        String name;
+        try { name = file.getCanonicalPath(); } catch (IOException e) { name = file.getAbsolutePath(); }
+        String key = "path:" + name + ":" + file.lastModified();
+        SETex tex = SEITextureCache.acquire(key);
+        return tex != null ? tex : SEITextureCache.put(key, new SETex(path));
+    }
+
+    /**
+     * Cached version of {@link engine.SETex#SETex(float, float, float, float)}.
+     * Every call adds a reference that should be given back with {@link engine.SETex#release()}.
+     * @param red The red component of the texture. From 0 (no red) to 1 (completely red).
+     * @param green The green component of the texture. From 0 (no green) to 1 (completely green).
+     * @param blue The blue component of the texture. From 0 (no blue) to 1 (completely blue).
+     * @param alpha The alpha component of the texture. From 0 (fully transparent) to 1 (fully opaque).
+     * @return A texture shared with every other call for the same colour.
+     */
+    public static SETex SEcached(float red, float green, float blue, float alpha) {
+        ByteData pixel = SERImages.toBytes(new Data(formatColors(red, green, blue, alpha), 1, 1));
+        StringBuilder key = new StringBuilder("color:");
+        for (int a = 0; a < pixel.data.capacity(); a++) key.append(pixel.data.get(a) & 0xff).append(',');
+        SETex tex = SEITextureCache.acquire(key.toString());
+        return tex != null ? tex : SEITextureCache.put(key.toString(), new SETex(pixel));
+    }
+
+    /**
+     * Cached version of {@link engine.SETex#SETex(float, float, float)}.
+     * @param red The red component of the texture. From 0 (no red) to 1 (completely red).
+     * @param green The green component of the texture. From 0 (no green) to 1 (completely green).
+     * @param blue The blue component of the texture. From 0 (no blue) to 1 (completely blue).
+     * @return A texture shared with every other call for the same colour.
+     */
+    public static SETex SEcached(float red, float green, float blue) { return SEcached(red, green, blue, 1); }
+
+    /**
+     * Gives back a reference gained from {@link engine.SETex#SEcached(String)} or {@link engine.SETex#SEcached(float, float, float, float)}.
+     * A cached texture without references stays loaded until texture memory runs out, then the least recently used ones are deleted.
+     */
+    public void release() { if (references > 0) references--; }
+
+    /**
+     * Returns the amount of cached texture lookups that found a loaded texture.
+     * @return The amount of cache hits.
+     */
+    public static long SEgetTextureCacheHits() { return SEITextureCache.hits; }
+
+    /**
+     * Returns the amount of cached texture lookups that had to load a texture.
+     * @return The amount of cache misses.
+     */
+    public static long SEgetTextureCacheMisses() { return SEITextureCache.misses; }
+
+    /**
+     * Returns the amount of unused cached textures deleted to make room for new textures.
+     * @return The amount of cache evictions.
+     */
+    public static long SEgetTextureCacheEvictions() { return SEITextureCache.evictions; }
+
+    /**
+     * Returns the amount of texture bytes uploaded through pixel buffer objects (see {@link engine.SEEngine#SEusePixelBufferUploads}).
+     * @return The amount of streamed bytes.
+     */
+    public static long SEgetStreamedTextureBytes() { return SEIPixelUploads.streamedBytes; }
+
+    /**
+     * Returns the amount of texture memory pages in use.
+     * @return The amount of pages.
+     */
+    public static int SEgetTexturePageCount() { return packers.size(); }
+
+    /**
+     * Binds the OpenGL texture of a texture memory page.
+     * @param page The page to bind.
+     */
+    protected static void bindPage(int page) { SEIState.bindTexture(pageTextures[page]); }
+
+    private static void addPage() {
+        int texture = glGenTextures();
+        SERImages.allocateTexture(width, height, texture);
+        pageTextures = Arrays.copyOf(pageTextures, pageTextures.length + 1);
+        pageTextures[pageTextures.length - 1] = texture;
+        packers.add(new SEIPacker(width, height));
+        pageOwners.add(Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    /**
+     * Moves every texture on a page together so its free space is no longer split up.
+     * The page is copied into a new OpenGL texture through a framebuffer, and every object using the page is saved again.
+     * @param page The page to repack.
+     * @return True if the page was repacked, false if the context lacks framebuffer objects or the textures did not fit.
+     */
+    private static boolean repackPage(int page) {
+        SEIPacker oldPacker = packers.get(page);
+        int largestBefore = oldPacker.getLargestFreeArea();
+        long time = System.nanoTime();
+        SETex[] owners = pageOwners.get(page).toArray(new SETex[0]);
+        Arrays.sort(owners, (a, b) -> Math.max(b.area.w, b.area.h) != Math.max(a.area.w, a.area.h) ?
+                Math.max(b.area.w, b.area.h) - Math.max(a.area.w, a.area.h) : b.area.w * b.area.h - a.area.w * a.area.h);
+        SEIPacker newPacker = new SEIPacker(width, height);
+        SEIPacker.Rect[] newAreas = new SEIPacker.Rect[owners.length];
+        for (int a = 0; a < owners.length; a++) {
+            newAreas[a] = newPacker.insert(owners[a].area.w, owners[a].area.h);
+            if (newAreas[a] == null) return false;
+        }
+
+        GLCapabilities caps = GL.getCapabilities();
+        boolean core = caps.OpenGL30 || caps.GL_ARB_framebuffer_object;
+        if (!core && !caps.GL_EXT_framebuffer_object) { SEEngine.log(SEMessageType.MSG_TYPE_OPENGL, SEMessage.MSG_INCOMPATIBLE_CONTEXT); return false; }
+        int oldTexture = pageTextures[page];
+        int newTexture = glGenTextures();
+        SERImages.allocateTexture(width, height, newTexture);
+        int framebuffer = core ? glGenFramebuffers() : glGenFramebuffersEXT();
+        if (core) {
+            glBindFramebuffer(GL_FRAMEBUFFER, framebuffer);
+            glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, oldTexture, 0);
+        } else {
+            glBindFramebufferEXT(GL_FRAMEBUFFER_EXT, framebuffer);
+            glFramebufferTexture2DEXT(GL_FRAMEBUFFER_EXT, GL_COLOR_ATTACHMENT0_EXT, GL_TEXTURE_2D, oldTexture, 0);
+        }
+        int status = core ? glCheckFramebufferStatus(GL_FRAMEBUFFER) : glCheckFramebufferStatusEXT(GL_FRAMEBUFFER_EXT);
+        boolean complete = status == GL_FRAMEBUFFER_COMPLETE;
+        if (complete) {
+            SEIState.bindTexture(newTexture);
+            for (int a = 0; a < owners.length; a++) {
+                SEIPacker.Rect from = owners[a].area, to = newAreas[a];
+                glCopyTexSubImage2D(GL_TEXTURE_2D, 0, to.x, to.y, from.x, from.y, from.w, from.h);
             }
         }
+        if (core) { glBindFramebuffer(GL_FRAMEBUFFER, 0); glDeleteFramebuffers(framebuffer); }
+        else { glBindFramebufferEXT(GL_FRAMEBUFFER_EXT, 0); glDeleteFramebuffersEXT(framebuffer); }
+        if (!complete) {
+            glDeleteTextures(newTexture);
+            SEIState.forgetTexture(newTexture);
+            SEEngine.log(SEMessageType.MSG_TYPE_OPENGL, SEMessage.MSG_INCOMPATIBLE_CONTEXT);
+            return false;
+        }
+        glDeleteTextures(oldTexture);
+        SEIState.forgetTexture(oldTexture);
+        pageTextures[page] = newTexture;
+        packers.set(page, newPacker);
+        for (int a = 0; a < owners.length; a++) {
+            owners[a].area = newAreas[a];
+            owners[a].texX = (double)newAreas[a].x / width; owners[a].texY = (double)newAreas[a].y / height;
+        }
+        SEObj.saveTexturePage(page);
+        time = (System.nanoTime() - time) / 1000000;
+        SEEngine.logWithDescription(SEMessageType.MSG_TYPE_INFO, SEMessage.MSG_TEXTURE_PAGE_REPACKED, "Texture memory page " + (page + 1) + " was repacked in " + time +
+                "ms. The largest free area grew from " + largestBefore + " to " + newPacker.getLargestFreeArea() + " pixels.");
+        repackedArea += newPacker.getLargestFreeArea() - largestBefore;
+        return true;
     }
 
+    private static long repackedArea = 0;
+
+    /**
+     * Repacks every texture memory page so textures are moved together and their free space is no longer split up.
+     * Every object using a moved texture is saved again. Every repacked page is reported with a {@link engine.SEConstants.SEMessage#MSG_TEXTURE_PAGE_REPACKED} message.
+     * Does nothing if the context lacks framebuffer objects.
+     * @return How much larger (in pixels) the largest free areas of all pages became.
+     */
+    public static long SErepackTextures() {
+        long before = repackedArea;
+        for (int a = 0; a < packers.size(); a++) repackPage(a);
+        return repackedArea - before;
+    }
+
+    /**
+     * Returns how much larger (in pixels) repacking has made the largest free areas of texture memory pages in total.
+     * @return The total recovered area.
+     */
+    public static long SEgetRepackedTextureArea() { return repackedArea; }
+
     /**
      * Fully clears all texture data.
-     * @param texWidth The new main texture width.
-     * @param texHeight The new main texture height.
+     * Every page but the first is released.
+     * @param texWidth The new page width.
+     * @param texHeight The new page height.
+     * @param texPages The new maximum amount of pages.
      */
-    protected static void clearTextures(int texWidth, int texHeight) {
-        width = texWidth; height = texHeight;
-        texSpace = new boolean[texWidth * texHeight];
-        Data texMap = new Data(new float[texWidth * SERImages.components * texHeight], texWidth, texHeight);
-        glBindTexture(GL_TEXTURE_2D, 0);
-        glDeleteTextures(mainTex);
-        mainTex = glGenTextures();
-        SERImages.loadTexture(texMap, mainTex);
+    protected static void clearTextures(int texWidth, int texHeight, int texPages) {
+        width = texWidth; height = texHeight; maxPages = Math.max(texPages, 1);
+        SEIState.bindTexture(0);
+        glDeleteTextures(pageTextures);
+        pageTextures = new int[0];
+        packers.clear();
+        pageOwners.clear();
+        SEITextureCache.clear();
+        addPage();
     }
 
     /**
      * Invalidates all texture data.
-     * Unable to change main texture dimensions.
+     * Unable to change page dimensions. Pages already allocated are kept.
      */
     protected static void quickClearTextures() {
-        texSpace = new boolean[texSpace.length];
+        for (int a = 0; a < packers.size(); a++) {
+            packers.set(a, new SEIPacker(width, height));
+            pageOwners.get(a).clear();
+        }
+        SEITextureCache.clear();
     }
 
     /**
      * Initializes vital texture memory and procedures.
-     * @param texWidth The width of the texture to allocate.
-     * @param texHeight The height of the texture to allocate.
-     */
-    protected static void init(int texWidth, int texHeight) {
-        width = texWidth; height = texHeight;
-        texSpace = new boolean[texWidth * texHeight];
-        Data texMap = new Data(new float[texWidth * SERImages.components * texHeight], texWidth, texHeight);
-        mainTex = glGenTextures();
-        SERImages.loadTexture(texMap, mainTex);
+     * @param texWidth The width of every texture page.
+     * @param texHeight The height of every texture page.
+     * @param texPages The maximum amount of pages.
+     */
+    protected static void init(int texWidth, int texHeight, int texPages) {
+        width = texWidth; height = texHeight; maxPages = Math.max(texPages, 1);
+        addPage();
         gpuMaxTextureSize = glGetInteger(GL_MAX_TEXTURE_SIZE);
     }
-}
\ No newline at end of file
+}
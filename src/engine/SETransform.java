@@ -0,0 +1,162 @@
+/*
+ * SEEngine OpenGL 2.1 Engine
+ * Copyright (C) 2017  desgroup
+
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package engine;
+
+/**
+ * A 2D affine transform (a 3x2 matrix) stored in plain fields.
+ * Maps x, y to a * x + c * y + tx, b * x + d * y + ty.
+ * Every operation changes the transform in place and returns it, so nothing is allocated and calls can be chained.
+ * Like {@link engine.SERLogic#multiplyMatrices(SERLogic.Data, SERLogic.Data)}, each added transform is applied to a point before the ones already in place.
+ * @author desgroup
+ * @version SEAlpha4a
+ */
+public class SETransform {
+
+    /**
+     * The first column of the linear part.
+     */
+    public float a = 1, b = 0;
+
+    /**
+     * The second column of the linear part.
+     */
+    public float c = 0, d = 1;
+
+    /**
+     * The translation.
+     */
+    public float tx = 0, ty = 0;
+
+    /**
+     * Creates an identity transform.
+     */
+    public SETransform() {}
+
+    /**
+     * Creates a copy of copy.
+     * @param copy The transform to copy.
+     */
+    public SETransform(SETransform copy) { set(copy); }
+
+    /**
+     * Resets this transform to the identity.
+     * @return This transform.
+     */
+    public SETransform identity() { return set(1, 0, 0, 1, 0, 0); }
+
+    /**
+     * Sets every value of this transform.
+     * @param A The new a value.
+     * @param B The new b value.
+     * @param C The new c value.
+     * @param D The new d value.
+     * @param TX The new x translation.
+     * @param TY The new y translation.
+     * @return This transform.
+     */
+    public SETransform set(float A, float B, float C, float D, float TX, float TY) {
+        a = A; b = B; c = C; d = D; tx = TX; ty = TY;
+        return this;
+    }
+
+    /**
+     * Copies every value of other into this transform.
+     * @param other The transform to copy.
+     * @return This transform.
+     */
+    public SETransform set(SETransform other) { return set(other.a, other.b, other.c, other.d, other.tx, other.ty); }
+
+    /**
+     * Multiplies this transform by the transform given by its values, which is applied first.
+     * @param A The a value of the added transform.
+     * @param B The b value of the added transform.
+     * @param C The c value of the added transform.
+     * @param D The d value of the added transform.
+     * @param TX The x translation of the added transform.
+     * @param TY The y translation of the added transform.
+     * @return This transform.
+     */
+    public SETransform compose(float A, float B, float C, float D, float TX, float TY) {
+        return set(a * A + c * B, b * A + d * B,
+                a * C + c * D, b * C + d * D,
+                a * TX + c * TY + tx, b * TX + d * TY + ty);
+    }
+
+    /**
+     * Multiplies this transform by other, which is applied first.
+     * @param other The added transform.
+     * @return This transform.
+     */
+    public SETransform compose(SETransform other) { return compose(other.a, other.b, other.c, other.d, other.tx, other.ty); }
+
+    /**
+     * Adds a rotation of deg degrees.
+     * @param deg The degree of the rotation.
+     * @return This transform.
+     */
+    public SETransform rotate(float deg) {
+        double rad = Math.toRadians(deg);
+        float cos = (float)Math.cos(rad), sin = (float)Math.sin(rad);
+        return compose(cos, sin, -sin, cos, 0, 0);
+    }
+
+    /**
+     * Adds a scale by scaleX in the x axis and scaleY in the y axis.
+     * @param scaleX The scale to be applied in the x direction.
+     * @param scaleY The scale to be applied in the y direction.
+     * @return This transform.
+     */
+    public SETransform scale(float scaleX, float scaleY) { return compose(scaleX, 0, 0, scaleY, 0, 0); }
+
+    /**
+     * Adds a translation by x, y.
+     * @param x The translation in the x direction.
+     * @param y The translation in the y direction.
+     * @return This transform.
+     */
+    public SETransform translate(float x, float y) { return compose(1, 0, 0, 1, x, y); }
+
+    /**
+     * Returns the x coordinate of x, y after this transform.
+     * @param x The x coordinate of the point.
+     * @param y The y coordinate of the point.
+     * @return The transformed x coordinate.
+     */
+    public float transformX(float x, float y) { return a * x + c * y + tx; }
+
+    /**
+     * Returns the y coordinate of x, y after this transform.
+     * @param x The x coordinate of the point.
+     * @param y The y coordinate of the point.
+     * @return The transformed y coordinate.
+     */
+    public float transformY(float x, float y) { return b * x + d * y + ty; }
+
+    @Override public boolean equals(Object obj) {
+        if (!(obj instanceof SETransform)) return false;
+        SETransform t = (SETransform)obj;
+        return a == t.a && b == t.b && c == t.c && d == t.d && tx == t.tx && ty == t.ty;
+    }
+
+    @Override public int hashCode() {
+        int hash = Float.floatToIntBits(a);
+        hash = hash * 31 + Float.floatToIntBits(b); hash = hash * 31 + Float.floatToIntBits(c);
+        hash = hash * 31 + Float.floatToIntBits(d); hash = hash * 31 + Float.floatToIntBits(tx);
+        return hash * 31 + Float.floatToIntBits(ty);
+    }
+}
@@ -37,16 +37,10 @@ public class SEWrappedObj {
     protected static ArrayList<SEWrappedObj> knownObjects = new ArrayList<>();
 
     /**
-     * Provides linked list functionality if {@link engine.SEEngine#SEuseWrappedObjectDepth} is enabled.
-     * Stores the next object in order in reference to {@link engine.SEWrappedObj#knownObjects}.
+     * The depth order of all {@link engine.SEWrappedObj} if {@link engine.SEEngine#SEuseWrappedObjectDepth} is enabled.
+     * Holds {@link engine.SEWrappedObj#pointer} values from the bottom to the top of the stack.
      */
-    protected static ArrayList<Integer> next = new ArrayList<>();
-
-    /**
-     * Provides linked list functionality if {@link engine.SEEngine#SEuseWrappedObjectDepth} is enabled.
-     * Stores the first element in reference to {@link engine.SEWrappedObj#knownObjects}.
-     */
-    protected static int first[] = {-1};
+    protected static SEIDepthTree depthOrder = new SEIDepthTree();
 
     /**
      * Returns how many unique {@link engine.SEWrappedObj} are registered.
@@ -60,8 +54,8 @@ public class SEWrappedObj {
      */
     public static void SEclearWrappedObjects() {
         knownObjects.clear();
-        next.clear();
-        first = new int[]{-1};
+        SEIWrapperBatches.indicesDirty = true;
+        depthOrder.clear();
     }
 
     /**
@@ -70,14 +64,23 @@ public class SEWrappedObj {
     protected SEObj[] objs;
 
     /**
-     * Start of a current draw range.
+     * The runs of visible objects this wrapped object draws.
      */
-    protected int[] drawRangesStart;
+    protected SEIPagedRanges drawRanges = new SEIPagedRanges();
 
     /**
-     * Amount of objects in a current draw range.
+     * The runs of visible, blended objects on a layered object space (see {@link engine.SEObj#isSlotBlended(int)}).
+     * They are drawn after every wrapped object's {@link engine.SEWrappedObj#drawRanges}, without writing depth.
      */
-    protected int[] drawRangesCount;
+    protected SEIPagedRanges blendedRanges = new SEIPagedRanges();
+
+    /**
+     * True if {@link engine.SEWrappedObj#drawRanges} has to be regenerated before drawing.
+     * Set when a contained object is hidden, shown, deleted or moved to another texture page.
+     */
+    protected boolean rangesDirty = true;
+
+    private BitSet objsSpace = new BitSet();
 
     /**
      * All offsets attached to this wrapped object.
@@ -86,8 +89,9 @@ public class SEWrappedObj {
 
     /**
      * The current matrix attached to this wrapped object.
+     * Its linear part is applied around the matrix center, its translation (in pixels) like an extra offset.
      */
-    protected SERLogic.Data matrix;
+    protected SETransform matrix = new SETransform();
 
     /**
      * Determines if {@link engine.SEWrappedObj#matrixCenter} (value of true) or {@link engine.SEWrappedObj#matrixCenterX}, {@link engine.SEWrappedObj#matrixCenterY} (value of false) will be used as a matrix center.
@@ -130,42 +134,42 @@ public class SEWrappedObj {
 
     /**
      * Generates draw ranges for the current setup of objects.
+     * Hidden and deleted objects are left out.
      */
     protected void genDrawRanges() {
-        class Range { int start, count; }
-        int maxLength = 0;
-        for (SEObj obj : objs) { if (obj.object > maxLength) maxLength = obj.object; }
-        boolean[] objsSpace = new boolean[maxLength + 1];
-        for (SEObj obj : objs) { objsSpace[obj.object] = true; }
-        ArrayList<Range> ranges = new ArrayList<>();
-        boolean isNewRange = false;
-        Range cRange = new Range();
-        for (int a = 0; a < objsSpace.length; a++) {
-            if (!isNewRange) {
-                if (objsSpace[a]) {
-                    cRange = new Range();
-                    cRange.start = a;
-                    isNewRange = true;
-                }
-            }
-            if (isNewRange) {
-                if (objsSpace[a]) {
-                    cRange.count++;
-                    if (a == objsSpace.length - 1) ranges.add(cRange);
-                } else {
-                    ranges.add(cRange);
-                    isNewRange = false;
-                }
-            }
-        }
-        Range[] drawRanges = new Range[ranges.size()];
-        ranges.toArray(drawRanges);
-        drawRangesStart = new int[drawRanges.length]; drawRangesCount = new int[drawRanges.length];
-        for (int a = 0; a < drawRanges.length; a++) {
-            drawRangesStart[a] = drawRanges[a].start * 4; drawRangesCount[a] = drawRanges[a].count * 4;
+        objsSpace.clear();
+        for (SEObj obj : objs) { if (obj.object != -1 && !obj.isHidden) objsSpace.set(obj.object); }
+        drawRanges.clear();
+        blendedRanges.clear();
+        for (int a = objsSpace.nextSetBit(0); a != -1; a = objsSpace.nextSetBit(a + 1))
+            (SEObj.isSlotBlended(a) ? blendedRanges : drawRanges).add(SEObj.getSlotPage(a), a, 1);
+        rangesDirty = false;
+    }
+
+    /**
+     * Sums every offset attached to this wrapped object.
+     * @param total Receives the x and y offset (in pixels).
+     */
+    protected void totalOffset(int[] total) {
+        total[0] = 0; total[1] = 0;
+        for (SEOffset offset : offsets) {
+            int[] value = offset.getOffset();
+            total[0] += value[0]; total[1] += value[1];
         }
     }
 
+    /**
+     * Gets the x position of the matrix center in use.
+     * @return The x position (in pixels) of the matrix center.
+     */
+    protected int centerX() { return useObjectForMatrixCenter ? matrixCenter.getCenterX() : matrixCenterX; }
+
+    /**
+     * Gets the y position of the matrix center in use.
+     * @return The y position (in pixels) of the matrix center.
+     */
+    protected int centerY() { return useObjectForMatrixCenter ? matrixCenter.getCenterY() : matrixCenterY; }
+
     static private SEObj[] createObjects(int count, int x, int y, int w, int h, SETex tex) {
         SEObj[] objs = new SEObj[count];
         for (int a = 0; a < objs.length; a++) {
@@ -186,21 +190,19 @@ public class SEWrappedObj {
                 if (obj.isWrapped) { SEEngine.log(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_ALREADY_WRAPPED); return; }
             for (SEObj obj : O) obj.isWrapped = true;
         }
-        matrix = SERLogic.genIdentityMatrix();
         if (!SEEngine.SEpreventBindOriginOffset) offsets.add(ORIGIN_OFFSET);
         objs = O;
+        for (SEObj obj : O) {
+            if (obj.wrappers == null) obj.wrappers = new ArrayList<>();
+            obj.wrappers.add(this);
+        }
         genDrawRanges();
         pointer = knownObjects.size();
         knownObjects.add(this);
+        SEIWrapperBatches.indicesDirty = true;
         if (SEEngine.SEuseWrappedObjectDepth) {
-            if (next.size() + 1 != knownObjects.size()) { SEEngine.log(SEMessageType.MSG_TYPE_OPT_FUNC, SEMessage.MSG_MISSING_DEPTH_INFO); }
-            if (next.isEmpty()) {
-                next.add(-1);
-                first[0] = knownObjects.size() - 1;
-            } else {
-                next.add(-1);
-                next.set(SERLogic.find(next, first[0], next.size() - 2), next.size() - 1);
-            }
+            if (depthOrder.size() + 1 != knownObjects.size()) { SEEngine.log(SEMessageType.MSG_TYPE_OPT_FUNC, SEMessage.MSG_MISSING_DEPTH_INFO); }
+            depthOrder.add(pointer);
         }
     }
 
@@ -220,26 +222,42 @@ public class SEWrappedObj {
     /**
      * Resets the matrix in objs to an identity matrix.
      */
-    public void resetMatrix() { matrix = SERLogic.genIdentityMatrix(); }
+    public void resetMatrix() { matrix.identity(); }
 
     /**
      * Adds a rotation matrix of deg degrees to objs.
      * @param deg The degree of the rotation.
      */
-    public void rotateMatrix(float deg) { matrix = SERLogic.multiplyMatrices(matrix, SERLogic.genRotationMatrix(deg)); }
+    public void rotateMatrix(float deg) { matrix.rotate(deg); }
 
     /**
      * Adds a scale matrix by scaleX in the x axis and scaleY in the y axis to objs.
      * @param scaleX The scale to be applied in the x direction.
      * @param scaleY The scale to be applied in the y direction.
      */
-    public void scaleMatrix(float scaleX, float scaleY) { matrix = SERLogic.multiplyMatrices(matrix, SERLogic.genScaleMatrix(scaleX, scaleY)); }
+    public void scaleMatrix(float scaleX, float scaleY) { matrix.scale(scaleX, scaleY); }
 
     /**
      * Adds a custom (Data 2x2) Matrix to the object objs.
      * @param M The matrix to apply to objs.
      */
-    public void customMatrix(SERLogic.Data M) { matrix = SERLogic.multiplyMatrices(matrix, M); }
+    public void customMatrix(SERLogic.Data M) {
+        if (M.width != 2 || M.height != 2) { SEEngine.log(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_INCOMPATIBLE_MATRICES); return; }
+        matrix.compose(M.data[0], M.data[2], M.data[1], M.data[3], 0, 0);
+    }
+
+    /**
+     * Adds a custom transform to the object objs.
+     * @param T The transform to apply to objs.
+     */
+    public void customMatrix(SETransform T) { matrix.compose(T); }
+
+    /**
+     * Gets the current matrix of this wrapped object.
+     * Changes to the returned transform are applied directly.
+     * @return The current matrix of objs.
+     */
+    public SETransform getMatrix() { return matrix; }
 
     /**
      * Changes the matrix center of objs to x, y on screen.
@@ -257,9 +275,9 @@ public class SEWrappedObj {
 
     /**
      * Gets the current and variable depth of this wrapped object.
-     * @return The current depth of objs.
+     * @return The current depth of objs, or -1 if the wrapped object was created while {@link engine.SEEngine#SEuseWrappedObjectDepth} was disabled and has no depth yet.
      */
-    public int getDepth() { return SERLogic.unFind(next, first[0], pointer); }
+    public int getDepth() { return depthOrder.indexOf(pointer); }
 
     /**
      * Changes the depth of this wrapped object.
@@ -271,7 +289,7 @@ public class SEWrappedObj {
      */
     public void depth(int depth) {
         if (pointer == -1) { SEEngine.log(SEMessageType.MSG_TYPE_FAIL, SEMessage.MSG_UNKNOWN_WRAPPED_OBJECT); return; } // Do we need this?
-        SERLogic.moveTo(next, first, SERLogic.unFind(next, first[0], pointer), depth);
+        depthOrder.move(pointer, depth);
     }
 
     /**
@@ -308,7 +326,11 @@ public class SEWrappedObj {
      * Does not delete the objects within the wrapped object, simply removes the wrapper from the draw call.
      * Repeatedly deleting wrapped objects can cause slowdown.
      */
-    public void delete() { knownObjects.set(pointer, null); }
+    public void delete() {
+        knownObjects.set(pointer, null);
+        SEIWrapperBatches.indicesDirty = true;
+        for (SEObj obj : objs) if (obj.wrappers != null) obj.wrappers.remove(this);
+    }
 
     /**
      * Content version of {@link engine.SEWrappedObj#delete()}.
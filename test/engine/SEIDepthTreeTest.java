@@ -0,0 +1,116 @@
+/*
+ * SEEngine OpenGL 2.1 Engine
+ * Copyright (C) 2017  desgroup
+
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package engine;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link engine.SEIDepthTree}, checked against a plain list.
+ * @author desgroup
+ * @version SEAlpha4a
+ */
+public class SEIDepthTreeTest {
+
+    /**
+     * Checks the order, the positions and the in order walk of tree against model.
+     * indexOf and next both climb the parent links, so broken links after a rotation show up here.
+     */
+    private static void check(SEIDepthTree tree, ArrayList<Integer> model, int nodes) {
+        assertEquals(model.size(), tree.size());
+        for (int node = 0; node < nodes; node++) {
+            assertEquals("position of " + node, model.indexOf(node), tree.indexOf(node));
+            assertEquals("contains " + node, model.contains(node), tree.contains(node));
+        }
+        int node = tree.first();
+        for (int expected : model) {
+            assertEquals(expected, node);
+            node = tree.next(node);
+        }
+        assertEquals(-1, node);
+    }
+
+    @Test
+    public void depthMovesMatchAList() {
+        Random random = new Random(3);
+        int nodes = 64;
+        SEIDepthTree tree = new SEIDepthTree();
+        ArrayList<Integer> model = new ArrayList<>();
+        for (int step = 0; step < 5000; step++) {
+            int node = random.nextInt(nodes), index = random.nextInt(nodes + 4) - 2;
+            switch (random.nextInt(4)) {
+                case 0:
+                    if (model.contains(node)) break;
+                    tree.add(node);
+                    model.add(node);
+                    break;
+                case 1:
+                    if (model.contains(node)) break;
+                    tree.insert(node, index);
+                    model.add(Math.max(0, Math.min(index, model.size())), node);
+                    break;
+                case 2:
+                    tree.remove(node);
+                    model.remove((Integer)node);
+                    break;
+                default:
+                    // The depth(int) of a wrapped object: the node takes the position and everything from there on moves up by one.
+                    tree.move(node, index);
+                    model.remove((Integer)node);
+                    model.add(Math.max(0, Math.min(index, model.size())), node);
+                    break;
+            }
+            check(tree, model, nodes);
+        }
+    }
+
+    @Test
+    public void largeListStaysConsistent() {
+        Random random = new Random(5);
+        int nodes = 5000;
+        SEIDepthTree tree = new SEIDepthTree();
+        ArrayList<Integer> model = new ArrayList<>();
+        for (int node = 0; node < nodes; node++) { tree.add(node); model.add(node); }
+        for (int step = 0; step < 2000; step++) {
+            int node = random.nextInt(nodes), index = random.nextInt(nodes);
+            tree.move(node, index);
+            model.remove((Integer)node);
+            model.add(Math.min(index, model.size()), node);
+        }
+        check(tree, model, nodes);
+        tree.clear();
+        assertEquals(0, tree.size());
+        assertEquals(-1, tree.first());
+        assertEquals(-1, tree.indexOf(0));
+    }
+
+    @Test
+    public void removingAMissingNodeDoesNothing() {
+        SEIDepthTree tree = new SEIDepthTree();
+        tree.remove(3);
+        tree.add(1);
+        tree.remove(7);
+        assertEquals(1, tree.size());
+        assertEquals(0, tree.indexOf(1));
+        assertEquals(-1, tree.indexOf(7));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * SEEngine OpenGL 2.1 Engine
+ * Copyright (C) 2017  desgroup
+
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link engine.SEIObjectSpace}.
+ * @author desgroup
+ * @version SEAlpha4a
+ */
+public class SEIObjectSpaceTest {
+
+    @Test
+    public void emptySpaceGrowsToOne() {
+        assertEquals(1, SEIObjectSpace.grownCapacity(0, 0));
+    }
+
+    @Test
+    public void fullSpaceDoubles() {
+        assertEquals(2, SEIObjectSpace.grownCapacity(1, 1));
+        assertEquals(8, SEIObjectSpace.grownCapacity(4, 4));
+        assertEquals(2048, SEIObjectSpace.grownCapacity(1024, 1024));
+        assertEquals(24, SEIObjectSpace.grownCapacity(3, 12));
+    }
+
+    @Test
+    public void everyNewObjectFitsAfterGrowing() {
+        SEIObjectSpace space = new SEIObjectSpace();
+        int capacity = 0, grows = 0;
+        for (int a = 0; a < 1000; a++) {
+            int slot = space.next();
+            if (slot >= capacity) { capacity = SEIObjectSpace.grownCapacity(capacity, slot); grows++; }
+            assertTrue(slot < capacity);
+            assertEquals(a, slot);
+            space.take(slot);
+        }
+        assertEquals(1024, capacity);
+        assertEquals(11, grows);
+    }
+
+    @Test
+    public void releasedSlotsAreReusedLowestFirst() {
+        SEIObjectSpace space = new SEIObjectSpace();
+        for (int a = 0; a < 10; a++) space.take(space.next());
+        space.release(7);
+        space.release(2);
+        space.release(5);
+        for (int expected : new int[] {2, 5, 7, 10}) {
+            int slot = space.next();
+            assertEquals(expected, slot);
+            space.take(slot);
+        }
+        assertEquals(11, space.used.cardinality());
+    }
+
+    @Test
+    public void movingFillsTheLowestHole() {
+        SEIObjectSpace space = new SEIObjectSpace();
+        for (int a = 0; a < 6; a++) space.take(space.next());
+        space.release(1);
+        space.release(3);
+        space.move(5, space.next());
+        assertTrue(space.used.get(1));
+        assertFalse(space.used.get(5));
+        assertEquals(3, space.next());
+        space.clear();
+        assertEquals(0, space.next());
+        assertTrue(space.used.isEmpty());
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * SEEngine OpenGL 2.1 Engine
+ * Copyright (C) 2017  desgroup
+
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link engine.SEIPacker}.
+ * @author desgroup
+ * @version SEAlpha4a
+ */
+public class SEIPackerTest {
+
+    @Test
+    public void freedPageFitsFullPage() {
+        SEIPacker packer = new SEIPacker(100, 100);
+        SEIPacker.Rect placed = packer.insert(50, 50);
+        assertNotNull(placed);
+        packer.free(placed);
+        assertEquals(0, packer.getUsedArea());
+        assertEquals(100 * 100, packer.getLargestFreeArea());
+        assertNotNull(packer.insert(100, 100));
+    }
+
+    @Test
+    public void freedSpaceBetweenTexturesIsReused() {
+        SEIPacker packer = new SEIPacker(100, 100);
+        SEIPacker.Rect[] placed = new SEIPacker.Rect[4];
+        for (int a = 0; a < placed.length; a++) assertNotNull(placed[a] = packer.insert(50, 50));
+        assertNull(packer.insert(50, 50));
+        packer.free(placed[1]);
+        packer.free(placed[3]);
+        assertEquals(2 * 50 * 50, packer.getUsedArea());
+        assertNotNull(packer.insert(50, 50));
+        assertNotNull(packer.insert(50, 50));
+        assertNull(packer.insert(1, 1));
+    }
+
+    @Test
+    public void reservedRectsAreFreedLikeInsertedOnes() {
+        SEIPacker packer = new SEIPacker(100, 100);
+        SEIPacker.Rect block = packer.insert(100, 40);
+        packer.free(block);
+        SEIPacker.Rect a = new SEIPacker.Rect(0, 0, 30, 40), b = new SEIPacker.Rect(30, 0, 70, 40);
+        packer.reserve(a);
+        packer.reserve(b);
+        packer.free(a);
+        packer.free(b);
+        assertEquals(0, packer.getUsedArea());
+        assertNotNull(packer.insert(100, 100));
+    }
+
+    @Test
+    public void dividedBlockFreesItsGaps() {
+        SEIPacker packer = new SEIPacker(100, 100);
+        SEIPacker.Rect block = packer.insert(100, 40);
+        SEIPacker.Rect a = new SEIPacker.Rect(0, 0, 30, 40), b = new SEIPacker.Rect(30, 0, 40, 20);
+        packer.divide(block, Arrays.asList(a, b));
+        assertEquals(30 * 40 + 40 * 20, packer.getUsedArea());
+        assertNotNull(packer.insert(30, 40));
+        assertNotNull(packer.insert(40, 20));
+        packer.free(Arrays.asList(a, b));
+        assertNotNull(packer.insert(30, 40));
+    }
+
+    @Test
+    public void freeSpaceMatchesARebuiltPacker() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < 50; trial++) {
+            SEIPacker packer = new SEIPacker(256, 256);
+            List<SEIPacker.Rect> live = new ArrayList<>();
+            for (int step = 0; step < 200; step++) {
+                int op = random.nextInt(5);
+                if (op == 4) {
+                    SEIPacker.Rect block = packer.insert(40, 40);
+                    if (block == null) continue;
+                    List<SEIPacker.Rect> parts = Arrays.asList(new SEIPacker.Rect(block.x, block.y, 10, 40), new SEIPacker.Rect(block.x + 15, block.y + 5, 20, 20));
+                    packer.divide(block, parts);
+                    live.addAll(parts);
+                }
+                else if (op < 2) {
+                    SEIPacker.Rect placed = packer.insert(1 + random.nextInt(60), 1 + random.nextInt(60));
+                    if (placed != null) live.add(placed);
+                }
+                else if (op == 2 && !live.isEmpty()) packer.free(live.remove(random.nextInt(live.size())));
+                else if (live.size() > 2) {
+                    List<SEIPacker.Rect> batch = new ArrayList<>();
+                    for (int a = 0; a < 3; a++) batch.add(live.remove(random.nextInt(live.size())));
+                    packer.free(batch);
+                }
+                SEIPacker rebuilt = new SEIPacker(256, 256);
+                for (SEIPacker.Rect r : live) rebuilt.reserve(new SEIPacker.Rect(r.x, r.y, r.w, r.h));
+                assertEquals(rebuilt.getUsedArea(), packer.getUsedArea());
+                assertEquals(rebuilt.getLargestFreeArea(), packer.getLargestFreeArea());
+            }
+        }
+    }
+
+    /**
+     * Loads and deletes 1000 sprites of 16 to 128 pixels on a 4096 by 4096 page.
+     * Both take a few hundred milliseconds at most, the timeout only catches a packer that has become quadratic again.
+     */
+    @Test(timeout = 10000)
+    public void thousandSpritesLoadAndDelete() {
+        Random random = new Random(7);
+        SEIPacker packer = new SEIPacker(4096, 4096);
+        List<SEIPacker.Rect> live = new ArrayList<>();
+        for (int a = 0; a < 1000; a++) {
+            SEIPacker.Rect placed = packer.insert(16 + random.nextInt(113), 16 + random.nextInt(113));
+            assertNotNull(placed);
+            live.add(placed);
+        }
+        Collections.shuffle(live, random);
+        for (SEIPacker.Rect r : live) packer.free(r);
+        assertEquals(0, packer.getUsedArea());
+        assertEquals(4096 * 4096, packer.getLargestFreeArea());
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * SEEngine OpenGL 2.1 Engine
+ * Copyright (C) 2017  desgroup
+
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package engine;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the raster decoding of {@link engine.SERImages}.
+ * Every decoded pixel has to match {@link java.awt.image.BufferedImage#getRGB(int, int)}.
+ * @author desgroup
+ * @version SEAlpha4a
+ */
+public class SERImagesTest {
+
+    private static final int[] TYPES = {
+        BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_INT_RGB,
+        BufferedImage.TYPE_3BYTE_BGR,
+        BufferedImage.TYPE_4BYTE_ABGR,
+        BufferedImage.TYPE_BYTE_GRAY,
+        BufferedImage.TYPE_INT_ARGB_PRE,
+        BufferedImage.TYPE_USHORT_565_RGB,
+    };
+
+    private static BufferedImage image(int type, int width, int height, long seed) {
+        BufferedImage img = new BufferedImage(width, height, type);
+        Random random = new Random(seed);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) img.setRGB(x, y, random.nextInt());
+        }
+        return img;
+    }
+
+    private static void check(BufferedImage img, String name) {
+        byte saved = SERImages.components;
+        try {
+            for (byte components : new byte[] {1, 3, 4}) {
+                SERImages.components = components;
+                ByteBuffer out = ByteBuffer.allocate(img.getWidth() * img.getHeight() * components);
+                SERImages.decode(img, out);
+                for (int y = 0; y < img.getHeight(); y++) {
+                    for (int x = 0; x < img.getWidth(); x++) {
+                        int argb = img.getRGB(x, y), at = (x + y * img.getWidth()) * components;
+                        String where = name + " with " + components + " components at " + x + "," + y;
+                        assertEquals(where, (argb >> 16) & 0xff, out.get(at) & 0xff);
+                        if (components < 3) continue;
+                        assertEquals(where, (argb >> 8) & 0xff, out.get(at + 1) & 0xff);
+                        assertEquals(where, argb & 0xff, out.get(at + 2) & 0xff);
+                        if (components == 4) assertEquals(where, argb >>> 24, out.get(at + 3) & 0xff);
+                    }
+                }
+            }
+        } finally { SERImages.components = saved; }
+    }
+
+    @Test
+    public void smallImagesMatchGetRGB() {
+        for (int type : TYPES) check(image(type, 37, 19, type), "type " + type);
+    }
+
+    @Test
+    public void parallelBandsMatchGetRGB() {
+        for (int type : TYPES) check(image(type, 300, 301, type), "type " + type);
+    }
+
+    @Test
+    public void subImagesMatchGetRGB() {
+        for (int type : TYPES) check(image(type, 64, 48, type).getSubimage(5, 7, 40, 30), "sub image of type " + type);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * SEEngine OpenGL 2.1 Engine
+ * Copyright (C) 2017  desgroup
+
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package engine;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import engine.SERLogic.Data;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link engine.SETransform} and the screen transform built from it by {@link engine.SEIShaders}.
+ * @author desgroup
+ * @version SEAlpha4a
+ */
+public class SETransformTest {
+
+    private static final float EPSILON = 1e-4f;
+
+    /**
+     * Builds the same random chain of rotations, scales and custom matrices on a transform and, the way wrapped objects used to, with multiplyMatrices.
+     */
+    private static Data chain(SETransform transform, Random random) {
+        Data matrix = SERLogic.genIdentityMatrix();
+        for (int step = 0; step < 6; step++) {
+            switch (random.nextInt(3)) {
+                case 0:
+                    float deg = random.nextFloat() * 360 - 180;
+                    transform.rotate(deg);
+                    matrix = SERLogic.multiplyMatrices(matrix, SERLogic.genRotationMatrix(deg));
+                    break;
+                case 1:
+                    float x = random.nextFloat() * 4 - 2, y = random.nextFloat() * 4 - 2;
+                    transform.scale(x, y);
+                    matrix = SERLogic.multiplyMatrices(matrix, SERLogic.genScaleMatrix(x, y));
+                    break;
+                default:
+                    float[] m = {random.nextFloat() * 2 - 1, random.nextFloat() * 2 - 1, random.nextFloat() * 2 - 1, random.nextFloat() * 2 - 1};
+                    // SEWrappedObj.customMatrix(Data) reads the matrix row by row.
+                    transform.compose(m[0], m[2], m[1], m[3], 0, 0);
+                    matrix = SERLogic.multiplyMatrices(matrix, new Data(m, 2, 2));
+                    break;
+            }
+        }
+        return matrix;
+    }
+
+    @Test
+    public void composeMatchesMultiplyMatrices() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 100; trial++) {
+            SETransform transform = new SETransform();
+            Data matrix = chain(transform, random);
+            assertEquals(matrix.data[0], transform.a, EPSILON);
+            assertEquals(matrix.data[1], transform.c, EPSILON);
+            assertEquals(matrix.data[2], transform.b, EPSILON);
+            assertEquals(matrix.data[3], transform.d, EPSILON);
+            float x = random.nextFloat() * 200 - 100, y = random.nextFloat() * 200 - 100;
+            Data point = SERLogic.multiplyMatrices(matrix, new Data(new float[] {x, y}, 1, 2));
+            assertEquals(point.data[0], transform.transformX(x, y), EPSILON * 100);
+            assertEquals(point.data[1], transform.transformY(x, y), EPSILON * 100);
+        }
+    }
+
+    @Test
+    public void addedTransformsApplyFirst() {
+        SETransform transform = new SETransform().translate(10, 0).rotate(90).scale(2, 1);
+        // The point is scaled, then rotated, then moved.
+        assertEquals(10, transform.transformX(1, 0), EPSILON);
+        assertEquals(2, transform.transformY(1, 0), EPSILON);
+        SETransform copy = new SETransform().translate(10, 0);
+        copy.compose(new SETransform().rotate(90).scale(2, 1));
+        assertEquals(transform.a, copy.a, EPSILON); assertEquals(transform.b, copy.b, EPSILON);
+        assertEquals(transform.c, copy.c, EPSILON); assertEquals(transform.d, copy.d, EPSILON);
+        assertEquals(transform.tx, copy.tx, EPSILON); assertEquals(transform.ty, copy.ty, EPSILON);
+    }
+
+    /**
+     * The screen position of a pixel the way the vertex shader computed it before the transform was folded:
+     * (project(position) - center) * matrix + center + offset * projection.xy, with the matrix uploaded from its rows,
+     * so the vector times matrix product equals the matrix times the vector.
+     */
+    private static float[] oldPosition(Data matrix, float x, float y, int xCenter, int yCenter, int xOffset, int yOffset,
+            float scaleX, float scaleY, float shiftX, float shiftY) {
+        float px = x * scaleX + shiftX, py = y * scaleY + shiftY;
+        float cx = xCenter * scaleX + shiftX, cy = yCenter * scaleY + shiftY;
+        float[] m = matrix.data;
+        return new float[] {
+            m[0] * (px - cx) + m[1] * (py - cy) + cx + xOffset * scaleX,
+            m[2] * (px - cx) + m[3] * (py - cy) + cy + yOffset * scaleY,
+        };
+    }
+
+    @Test
+    public void foldedTransformMatchesOldShader() {
+        Random random = new Random(13);
+        float[] out = new float[6];
+        for (int trial = 0; trial < 100; trial++) {
+            SETransform transform = new SETransform();
+            Data matrix = chain(transform, random);
+            float width = 200 + random.nextInt(1800), height = 200 + random.nextInt(1800);
+            int ampX = 1, ampY = random.nextBoolean() ? 1 : -1;
+            float scaleX = 2 / width * ampX, scaleY = 2 / height * ampY, shiftX = -ampX, shiftY = -ampY;
+            int xCenter = random.nextInt(2000), yCenter = random.nextInt(2000);
+            int xOffset = random.nextInt(400) - 200, yOffset = random.nextInt(400) - 200;
+            SEIShaders.screenTransform(transform, xCenter, yCenter, xOffset, yOffset, scaleX, scaleY, shiftX, shiftY, out);
+            for (int point = 0; point < 4; point++) {
+                float x = random.nextInt(2000), y = random.nextInt(2000);
+                float px = x * scaleX + shiftX, py = y * scaleY + shiftY;
+                float[] expected = oldPosition(matrix, x, y, xCenter, yCenter, xOffset, yOffset, scaleX, scaleY, shiftX, shiftY);
+                assertEquals(expected[0], out[0] * px + out[2] * py + out[4], EPSILON * 10);
+                assertEquals(expected[1], out[1] * px + out[3] * py + out[5], EPSILON * 10);
+            }
+        }
+    }
+
+    @Test
+    public void translationActsLikeAnOffset() {
+        float[] moved = new float[6], offset = new float[6];
+        SETransform transform = new SETransform().rotate(30).scale(2, 3);
+        SEIShaders.screenTransform(new SETransform().translate(15, -7).compose(transform), 100, 50, 3, 4, 0.01f, -0.02f, -1, 1, moved);
+        SEIShaders.screenTransform(transform, 100, 50, 18, -3, 0.01f, -0.02f, -1, 1, offset);
+        for (int a = 0; a < 6; a++) assertEquals(offset[a], moved[a], EPSILON);
+    }
+}